@@ -0,0 +1,619 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+/**
+ * Árvore dinâmica de caixas alinhadas aos eixos (AABB), usada para indexar elementos físicos de tamanhos variados.
+ * As folhas guardam caixas engordadas por uma margem, de forma que um elemento só precisa ser reinserido
+ * quando sua caixa real sai da caixa engordada. A árvore é mantida balanceada por rotações.
+ * Os nós são guardados em vetores e identificados por índices, evitando alocações durante a simulação.
+ * @author Willians Magalhães Primo
+ */
+public class AABBTree {
+	public static final int NULL_NODE = -1;
+	
+	/**
+	 * Interface usada para receber as folhas encontradas em uma consulta.
+	 * @author Willians Magalhães Primo
+	 */
+	public interface QueryCallback {
+		/**
+		 * Chamado para cada folha cuja caixa sobrepõe a região consultada. Deve retornar false para interromper a consulta.
+		 */
+		public boolean onProxy(int proxy);
+	}
+	
+	/**
+	 * Interface usada para receber as folhas cruzadas por um raio.
+	 * @author Willians Magalhães Primo
+	 */
+	public interface RaycastCallback {
+		/**
+		 * Chamado para cada folha cuja caixa é cruzada pelo raio até a fração máxima atual. Deve retornar a nova fração
+		 * máxima, que pode ser a própria fração máxima para continuar, a fração de um acerto para encurtar o raio
+		 * ou zero para interromper a consulta.
+		 */
+		public double onProxy(int proxy, double maximumFraction);
+	}
+	
+	private double margin = 4.0f,
+				   displacementMultiplier = 2.0f;
+	
+	private int root = NULL_NODE,
+				freeList = NULL_NODE,
+				capacity = 0,
+				proxyCount = 0;
+	
+	private double[] minX = new double[0],
+					 minY = new double[0],
+					 maxX = new double[0],
+					 maxY = new double[0];
+	
+	private int[] parent = new int[0],
+				  child1 = new int[0],
+				  child2 = new int[0],
+				  height = new int[0];
+	
+	private PhysicElement[] elements = new PhysicElement[0];
+	private int[] stack = new int[64];
+	
+	//Construtores
+	public AABBTree(){
+		grow(16);
+	}
+	
+	public AABBTree(double margin){
+		this();
+		this.margin = margin;
+	}
+	
+	/**
+	 * Cria uma folha para o elemento com a caixa informada e retorna o seu identificador.
+	 */
+	public int createProxy(double minX, double minY, double maxX, double maxY, PhysicElement element){
+		int proxy = allocateNode();
+		this.minX[proxy] = minX - margin;
+		this.minY[proxy] = minY - margin;
+		this.maxX[proxy] = maxX + margin;
+		this.maxY[proxy] = maxY + margin;
+		this.elements[proxy] = element;
+		this.height[proxy] = 0;
+		insertLeaf(proxy);
+		proxyCount++;
+		return proxy;
+	}
+	
+	/**
+	 * Remove uma folha da árvore.
+	 */
+	public void destroyProxy(int proxy){
+		removeLeaf(proxy);
+		freeNode(proxy);
+		proxyCount--;
+	}
+	
+	/**
+	 * Atualiza a caixa de uma folha. A folha só é reinserida quando a nova caixa sai da caixa engordada,
+	 * nesse caso a nova caixa engordada é estendida na direção do deslocamento. Retorna se houve reinserção.
+	 */
+	public boolean moveProxy(int proxy, double minX, double minY, double maxX, double maxY, double displacementX, double displacementY){
+		if(this.minX[proxy] <= minX && this.minY[proxy] <= minY && this.maxX[proxy] >= maxX && this.maxY[proxy] >= maxY){
+			return false;
+		}
+		
+		removeLeaf(proxy);
+		
+		displacementX *= displacementMultiplier;
+		displacementY *= displacementMultiplier;
+		this.minX[proxy] = minX - margin + Math.min(displacementX, 0);
+		this.minY[proxy] = minY - margin + Math.min(displacementY, 0);
+		this.maxX[proxy] = maxX + margin + Math.max(displacementX, 0);
+		this.maxY[proxy] = maxY + margin + Math.max(displacementY, 0);
+		
+		insertLeaf(proxy);
+		return true;
+	}
+	
+	/**
+	 * Consulta todas as folhas cujas caixas engordadas sobrepõem a região informada.
+	 */
+	public void query(double minX, double minY, double maxX, double maxY, QueryCallback callback){
+		int top = 0;
+		stack[top++] = root;
+		while(top > 0){
+			int node = stack[--top];
+			if(node == NULL_NODE){
+				continue;
+			}
+			
+			if(this.minX[node] > maxX || this.maxX[node] < minX || this.minY[node] > maxY || this.maxY[node] < minY){
+				continue;
+			}
+			
+			if(isLeaf(node)){
+				if(!callback.onProxy(node)){
+					return;
+				}
+			}else{
+				if(top + 2 > stack.length){
+					int[] newStack = new int[stack.length*2];
+					System.arraycopy(stack, 0, newStack, 0, top);
+					stack = newStack;
+				}
+				stack[top++] = child1[node];
+				stack[top++] = child2[node];
+			}
+		}
+	}
+	
+	/**
+	 * Consulta as folhas cujas caixas engordadas são cruzadas pelo segmento que vai do início ao fim informados.
+	 */
+	public void raycast(double startX, double startY, double endX, double endY, RaycastCallback callback){
+		double directionX = endX - startX,
+			   directionY = endY - startY,
+			   maximumFraction = 1.0f;
+		int top = 0;
+		stack[top++] = root;
+		while(top > 0){
+			int node = stack[--top];
+			if(node == NULL_NODE || !rayOverlaps(node, startX, startY, directionX, directionY, maximumFraction)){
+				continue;
+			}
+			
+			if(isLeaf(node)){
+				maximumFraction = callback.onProxy(node, maximumFraction);
+				if(maximumFraction <= 0){
+					return;
+				}
+			}else{
+				if(top + 2 > stack.length){
+					int[] newStack = new int[stack.length*2];
+					System.arraycopy(stack, 0, newStack, 0, top);
+					stack = newStack;
+				}
+				stack[top++] = child1[node];
+				stack[top++] = child2[node];
+			}
+		}
+	}
+	
+	/**
+	 * Retorna se o raio cruza a caixa do nó antes da fração máxima.
+	 */
+	private boolean rayOverlaps(int node, double startX, double startY, double directionX, double directionY, double maximumFraction){
+		double enter = 0, exit = maximumFraction;
+		for(int axis = 0; axis < 2; axis++){
+			double start = axis == 0 ? startX : startY,
+				   direction = axis == 0 ? directionX : directionY,
+				   min = axis == 0 ? minX[node] : minY[node],
+				   max = axis == 0 ? maxX[node] : maxY[node];
+			if(direction == 0){
+				if(start < min || start > max){
+					return false;
+				}
+			}else{
+				double first = (min - start)/direction,
+					   last = (max - start)/direction;
+				if(first > last){
+					double swap = first;
+					first = last;
+					last = swap;
+				}
+				enter = Math.max(enter, first);
+				exit = Math.min(exit, last);
+				if(enter > exit){
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Retorna se o nó informado é uma folha em uso.
+	 */
+	public boolean isProxy(int node){
+		return node >= 0 && node < capacity && height[node] == 0 && elements[node] != null;
+	}
+	
+	/**
+	 * Retorna o elemento associado a uma folha.
+	 */
+	public PhysicElement getElement(int proxy){
+		return elements[proxy];
+	}
+	
+	/**
+	 * Retorna a capacidade atual de nós da árvore, ou seja, o limite superior dos identificadores.
+	 */
+	public int getCapacity(){
+		return capacity;
+	}
+	
+	/**
+	 * Retorna o número de folhas da árvore.
+	 */
+	public int getProxyCount(){
+		return proxyCount;
+	}
+	
+	/**
+	 * Retorna a altura da árvore.
+	 */
+	public int getHeight(){
+		if(root == NULL_NODE){
+			return 0;
+		}
+		return height[root];
+	}
+	
+	/**
+	 * Retorna a coordenada x mínima da caixa engordada de um nó.
+	 */
+	public double getMinX(int node){
+		return minX[node];
+	}
+	
+	/**
+	 * Retorna a coordenada y mínima da caixa engordada de um nó.
+	 */
+	public double getMinY(int node){
+		return minY[node];
+	}
+	
+	/**
+	 * Retorna a coordenada x máxima da caixa engordada de um nó.
+	 */
+	public double getMaxX(int node){
+		return maxX[node];
+	}
+	
+	/**
+	 * Retorna a coordenada y máxima da caixa engordada de um nó.
+	 */
+	public double getMaxY(int node){
+		return maxY[node];
+	}
+	
+	/**
+	 * Retorna a margem usada para engordar as caixas das folhas.
+	 */
+	public double getMargin() {
+		return margin;
+	}
+	
+	/**
+	 * Seta a margem usada para engordar as caixas das folhas.
+	 */
+	public void setMargin(double margin) {
+		this.margin = margin;
+	}
+	
+	/**
+	 * Retorna o multiplicador do deslocamento usado na predição das caixas engordadas.
+	 */
+	public double getDisplacementMultiplier() {
+		return displacementMultiplier;
+	}
+	
+	/**
+	 * Seta o multiplicador do deslocamento usado na predição das caixas engordadas.
+	 */
+	public void setDisplacementMultiplier(double displacementMultiplier) {
+		this.displacementMultiplier = displacementMultiplier;
+	}
+	
+	/**
+	 * Insere uma folha escolhendo o irmão que menos aumenta o perímetro da árvore.
+	 */
+	private void insertLeaf(int leaf){
+		if(root == NULL_NODE){
+			root = leaf;
+			parent[root] = NULL_NODE;
+			return;
+		}
+		
+		int index = root;
+		while(!isLeaf(index)){
+			int one = child1[index];
+			int other = child2[index];
+			
+			double area = perimeter(index);
+			double combinedArea = combinedPerimeter(index, leaf);
+			double cost = 2*combinedArea;
+			double inheritanceCost = 2*(combinedArea - area);
+			
+			double costOne = combinedPerimeter(one, leaf) + inheritanceCost;
+			if(!isLeaf(one)){
+				costOne -= perimeter(one);
+			}
+			
+			double costOther = combinedPerimeter(other, leaf) + inheritanceCost;
+			if(!isLeaf(other)){
+				costOther -= perimeter(other);
+			}
+			
+			if(cost < costOne && cost < costOther){
+				break;
+			}
+			
+			index = costOne < costOther ? one : other;
+		}
+		
+		int sibling = index;
+		int oldParent = parent[sibling];
+		int newParent = allocateNode();
+		parent[newParent] = oldParent;
+		elements[newParent] = null;
+		height[newParent] = height[sibling] + 1;
+		setUnion(newParent, sibling, leaf);
+		
+		if(oldParent != NULL_NODE){
+			if(child1[oldParent] == sibling){
+				child1[oldParent] = newParent;
+			}else{
+				child2[oldParent] = newParent;
+			}
+		}else{
+			root = newParent;
+		}
+		child1[newParent] = sibling;
+		child2[newParent] = leaf;
+		parent[sibling] = newParent;
+		parent[leaf] = newParent;
+		
+		refit(parent[leaf]);
+	}
+	
+	/**
+	 * Remove uma folha da árvore, liberando o nó pai.
+	 */
+	private void removeLeaf(int leaf){
+		if(leaf == root){
+			root = NULL_NODE;
+			return;
+		}
+		
+		int leafParent = parent[leaf];
+		int grandParent = parent[leafParent];
+		int sibling = child1[leafParent] == leaf ? child2[leafParent] : child1[leafParent];
+		
+		if(grandParent != NULL_NODE){
+			if(child1[grandParent] == leafParent){
+				child1[grandParent] = sibling;
+			}else{
+				child2[grandParent] = sibling;
+			}
+			parent[sibling] = grandParent;
+			freeNode(leafParent);
+			refit(grandParent);
+		}else{
+			root = sibling;
+			parent[sibling] = NULL_NODE;
+			freeNode(leafParent);
+		}
+	}
+	
+	/**
+	 * Rebalanceia e reajusta as caixas e alturas a partir de um nó até a raiz.
+	 */
+	private void refit(int index){
+		while(index != NULL_NODE){
+			index = balance(index);
+			
+			height[index] = 1 + Math.max(height[child1[index]], height[child2[index]]);
+			setUnion(index, child1[index], child2[index]);
+			
+			index = parent[index];
+		}
+	}
+	
+	/**
+	 * Aplica uma rotação caso o nó esteja desbalanceado e retorna a nova raiz da subárvore.
+	 */
+	private int balance(int a){
+		if(isLeaf(a) || height[a] < 2){
+			return a;
+		}
+		
+		int b = child1[a];
+		int c = child2[a];
+		int balance = height[c] - height[b];
+		
+		//Rotaciona c para cima
+		if(balance > 1){
+			int f = child1[c];
+			int g = child2[c];
+			
+			child1[c] = a;
+			parent[c] = parent[a];
+			parent[a] = c;
+			replaceChild(parent[c], a, c);
+			
+			if(height[f] > height[g]){
+				child2[c] = f;
+				child2[a] = g;
+				parent[g] = a;
+				setUnion(a, b, g);
+				setUnion(c, a, f);
+				height[a] = 1 + Math.max(height[b], height[g]);
+				height[c] = 1 + Math.max(height[a], height[f]);
+			}else{
+				child2[c] = g;
+				child2[a] = f;
+				parent[f] = a;
+				setUnion(a, b, f);
+				setUnion(c, a, g);
+				height[a] = 1 + Math.max(height[b], height[f]);
+				height[c] = 1 + Math.max(height[a], height[g]);
+			}
+			return c;
+		}
+		
+		//Rotaciona b para cima
+		if(balance < -1){
+			int d = child1[b];
+			int e = child2[b];
+			
+			child1[b] = a;
+			parent[b] = parent[a];
+			parent[a] = b;
+			replaceChild(parent[b], a, b);
+			
+			if(height[d] > height[e]){
+				child2[b] = d;
+				child1[a] = e;
+				parent[e] = a;
+				setUnion(a, c, e);
+				setUnion(b, a, d);
+				height[a] = 1 + Math.max(height[c], height[e]);
+				height[b] = 1 + Math.max(height[a], height[d]);
+			}else{
+				child2[b] = e;
+				child1[a] = d;
+				parent[d] = a;
+				setUnion(a, c, d);
+				setUnion(b, a, e);
+				height[a] = 1 + Math.max(height[c], height[d]);
+				height[b] = 1 + Math.max(height[a], height[e]);
+			}
+			return b;
+		}
+		
+		return a;
+	}
+	
+	/**
+	 * Substitui o filho de um nó, atualizando a raiz caso o nó seja nulo.
+	 */
+	private void replaceChild(int node, int oldChild, int newChild){
+		if(node == NULL_NODE){
+			root = newChild;
+		}else if(child1[node] == oldChild){
+			child1[node] = newChild;
+		}else{
+			child2[node] = newChild;
+		}
+	}
+	
+	/**
+	 * Seta a caixa de um nó como a união das caixas de outros dois.
+	 */
+	private void setUnion(int node, int one, int other){
+		minX[node] = Math.min(minX[one], minX[other]);
+		minY[node] = Math.min(minY[one], minY[other]);
+		maxX[node] = Math.max(maxX[one], maxX[other]);
+		maxY[node] = Math.max(maxY[one], maxY[other]);
+	}
+	
+	/**
+	 * Retorna o perímetro da caixa de um nó.
+	 */
+	private double perimeter(int node){
+		return 2*(maxX[node] - minX[node] + maxY[node] - minY[node]);
+	}
+	
+	/**
+	 * Retorna o perímetro da união das caixas de dois nós.
+	 */
+	private double combinedPerimeter(int one, int other){
+		return 2*(Math.max(maxX[one], maxX[other]) - Math.min(minX[one], minX[other])
+				+ Math.max(maxY[one], maxY[other]) - Math.min(minY[one], minY[other]));
+	}
+	
+	/**
+	 * Retorna se o nó é uma folha.
+	 */
+	private boolean isLeaf(int node){
+		return child1[node] == NULL_NODE;
+	}
+	
+	/**
+	 * Retira um nó da lista de nós livres, aumentando os vetores caso necessário.
+	 */
+	private int allocateNode(){
+		if(freeList == NULL_NODE){
+			grow(capacity*2);
+		}
+		int node = freeList;
+		freeList = parent[node];
+		parent[node] = NULL_NODE;
+		child1[node] = NULL_NODE;
+		child2[node] = NULL_NODE;
+		height[node] = 0;
+		elements[node] = null;
+		return node;
+	}
+	
+	/**
+	 * Devolve um nó à lista de nós livres.
+	 */
+	private void freeNode(int node){
+		parent[node] = freeList;
+		child1[node] = NULL_NODE;
+		child2[node] = NULL_NODE;
+		height[node] = -1;
+		elements[node] = null;
+		freeList = node;
+	}
+	
+	/**
+	 * Aumenta a capacidade dos vetores de nós.
+	 */
+	private void grow(int newCapacity){
+		minX = copyOf(minX, newCapacity);
+		minY = copyOf(minY, newCapacity);
+		maxX = copyOf(maxX, newCapacity);
+		maxY = copyOf(maxY, newCapacity);
+		parent = copyOf(parent, newCapacity);
+		child1 = copyOf(child1, newCapacity);
+		child2 = copyOf(child2, newCapacity);
+		height = copyOf(height, newCapacity);
+		
+		PhysicElement[] newElements = new PhysicElement[newCapacity];
+		System.arraycopy(elements, 0, newElements, 0, capacity);
+		elements = newElements;
+		
+		for(int i = newCapacity - 1; i >= capacity; i--){
+			parent[i] = freeList;
+			child1[i] = NULL_NODE;
+			child2[i] = NULL_NODE;
+			height[i] = -1;
+			freeList = i;
+		}
+		capacity = newCapacity;
+	}
+	
+	private static double[] copyOf(double[] values, int length){
+		double[] result = new double[length];
+		System.arraycopy(values, 0, result, 0, Math.min(values.length, length));
+		return result;
+	}
+	
+	private static int[] copyOf(int[] values, int length){
+		int[] result = new int[length];
+		System.arraycopy(values, 0, result, 0, Math.min(values.length, length));
+		return result;
+	}
+}
@@ -0,0 +1,229 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Fase ampla baseada em uma árvore dinâmica de caixas (AABBTree).
+ * É indicada para cenas que misturam elementos grandes, como pisos e paredes, com muitos elementos pequenos.
+ * As folhas são mantidas entre as simulações e apenas elementos que saem de sua caixa engordada são reinseridos.
+ * @author Willians Magalhães Primo
+ */
+public class AABBTreeBroadPhase implements BroadPhase {
+	private AABBTree tree = new AABBTree();
+	
+	//Relaciona os elementos às suas folhas na árvore
+	private HashMap<PhysicElement, Integer> proxies = new HashMap<PhysicElement, Integer>();
+	
+	//Propriedades de cada folha, indexadas pelo identificador da folha
+	private int[] proxyFrame = new int[16];
+	private double[] minX = new double[16],
+					 minY = new double[16],
+					 maxX = new double[16],
+					 maxY = new double[16];
+	
+	//Folhas de elementos ativos que devem consultar a árvore
+	private int[] queryProxies = new int[16];
+	private int frame = 0,
+				queryProxy = AABBTree.NULL_NODE;
+	
+	//Folhas encontradas pela consulta atual, enviadas ao simulador na ordem do código dos elementos
+	//para que a ordem dos pares não dependa da forma da árvore, que muda ao voltar a simulação no tempo
+	private int[] candidates = new int[16];
+	private int candidateCount = 0;
+	
+	private PhysicSimulator simulator = null;
+	
+	private AABBTree.QueryCallback pairCallback = new AABBTree.QueryCallback() {
+		@Override
+		public boolean onProxy(int proxy) {
+			if(proxy == queryProxy || proxyFrame[proxy] != frame){
+				return true;
+			}
+			
+			//Pares entre elementos ativos são encontrados pelas duas folhas, apenas um dos sentidos é enviado
+			PhysicElement other = tree.getElement(proxy);
+			if(other.isActive() && proxy < queryProxy){
+				return true;
+			}
+			
+			if(!other.canColideWith(tree.getElement(queryProxy))){
+				return true;
+			}
+			
+			if(minX[queryProxy] > maxX[proxy] || minX[proxy] > maxX[queryProxy] 
+			   || minY[queryProxy] > maxY[proxy] || minY[proxy] > maxY[queryProxy]){
+				return true;
+			}
+			
+			if(candidateCount == candidates.length){
+				candidates = Arrays.copyOf(candidates, candidateCount*2);
+			}
+			candidates[candidateCount++] = proxy;
+			return true;
+		}
+	};
+	
+	//Construtores
+	public AABBTreeBroadPhase(){}
+	
+	public AABBTreeBroadPhase(double margin){
+		tree.setMargin(margin);
+	}
+	
+	/**
+	 * Atualiza as folhas da árvore e envia os pares candidatos ao simulador.
+	 */
+	@Override
+	public void findPairs(List<GameElement> sceneElements, PhysicSimulator simulator){
+		this.simulator = simulator;
+		int queryCount = update(sceneElements);
+		
+		for(int i = 0; i < queryCount; i++){
+			queryProxy = queryProxies[i];
+			candidateCount = 0;
+			tree.query(minX[queryProxy], minY[queryProxy], maxX[queryProxy], maxY[queryProxy], pairCallback);
+			
+			sortCandidates();
+			for(int j = 0; j < candidateCount; j++){
+				simulator.testPair(tree.getElement(queryProxy), tree.getElement(candidates[j]));
+			}
+		}
+		
+		queryProxy = AABBTree.NULL_NODE;
+		this.simulator = null;
+	}
+	
+	/**
+	 * Atualiza as folhas da árvore com as posições atuais dos elementos, sem procurar pares.
+	 * Retorna o número de folhas de elementos ativos.
+	 */
+	public int update(List<GameElement> sceneElements){
+		PhysicElement element = null;
+		Integer proxy = null;
+		int queryCount = 0;
+		int elementProxy = 0;
+		double x, y, radio;
+		
+		frame++;
+		
+		if(queryProxies.length < sceneElements.size()){
+			queryProxies = new int[Math.max(sceneElements.size(), queryProxies.length*2)];
+		}
+		
+		for(int i = 0; i < sceneElements.size(); i++){
+			element = (PhysicElement)sceneElements.get(i);
+			if(element.isDeleted() || !element.isColidable()){
+				continue;
+			}
+			
+			x = element.getPosition().getX();
+			y = element.getPosition().getY();
+			radio = element.getRadio();
+			
+			proxy = proxies.get(element);
+			if(proxy == null){
+				elementProxy = tree.createProxy(x - radio, y - radio, x + radio, y + radio, element);
+				proxies.put(element, elementProxy);
+				ensureCapacity(tree.getCapacity());
+			}else{
+				elementProxy = proxy;
+				tree.moveProxy(elementProxy, x - radio, y - radio, x + radio, y + radio,
+							   element.getVelocity().getX(), element.getVelocity().getY());
+			}
+			
+			proxyFrame[elementProxy] = frame;
+			minX[elementProxy] = x - radio;
+			minY[elementProxy] = y - radio;
+			maxX[elementProxy] = x + radio;
+			maxY[elementProxy] = y + radio;
+			
+			if(element.isActive()){
+				queryProxies[queryCount++] = elementProxy;
+			}
+		}
+		
+		removeOldProxies();
+		return queryCount;
+	}
+	
+	/**
+	 * Remove da árvore as folhas de elementos que não foram encontrados na última simulação.
+	 */
+	private void removeOldProxies(){
+		for(int node = 0; node < tree.getCapacity(); node++){
+			if(tree.isProxy(node) && proxyFrame[node] != frame){
+				proxies.remove(tree.getElement(node));
+				tree.destroyProxy(node);
+			}
+		}
+	}
+	
+	/**
+	 * Ordena as folhas encontradas pela consulta atual pelo código dos elementos. As consultas encontram poucas folhas,
+	 * então a ordenação por inserção basta.
+	 */
+	private void sortCandidates(){
+		for(int i = 1; i < candidateCount; i++){
+			int proxy = candidates[i];
+			int code = tree.getElement(proxy).getCode();
+			int j = i;
+			while(j > 0 && tree.getElement(candidates[j - 1]).getCode() > code){
+				candidates[j] = candidates[j - 1];
+				j--;
+			}
+			candidates[j] = proxy;
+		}
+	}
+	
+	/**
+	 * Garante a capacidade dos vetores de propriedades das folhas.
+	 */
+	private void ensureCapacity(int capacity){
+		if(proxyFrame.length < capacity){
+			int[] newProxyFrame = new int[capacity];
+			System.arraycopy(proxyFrame, 0, newProxyFrame, 0, proxyFrame.length);
+			proxyFrame = newProxyFrame;
+			minX = copyOf(minX, capacity);
+			minY = copyOf(minY, capacity);
+			maxX = copyOf(maxX, capacity);
+			maxY = copyOf(maxY, capacity);
+		}
+	}
+	
+	private static double[] copyOf(double[] values, int length){
+		double[] result = new double[length];
+		System.arraycopy(values, 0, result, 0, values.length);
+		return result;
+	}
+	
+	/**
+	 * Retorna a árvore usada pela fase ampla.
+	 */
+	public AABBTree getTree() {
+		return tree;
+	}
+}
@@ -198,7 +198,7 @@ public abstract class BaseSprite extends GameElement implements DrawableElement,
 		if(isVisible() && bitmap != null){
 			calcRectFrame(properties);
 			canvas.save();
-			canvas.rotate((float)Math.toDegrees(properties.getRotation()), (float)properties.getPosition().getX(), (float)properties.getPosition().getY());
+			canvas.rotate((float)GameMath.toDegrees(properties.getRotation()), (float)properties.getPosition().getX(), (float)properties.getPosition().getY());
 			canvas.drawBitmap(bitmap, source,destination, paint);
 			canvas.restore();
 			onDraw(canvas);
@@ -0,0 +1,50 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+/**
+ * Interface que determina as funções de detecção e tratamento de colisões entre duas formas.
+ * Os detectores são registrados no PhysicSimulator por par de formas através de registerColisionDetector,
+ * podendo substituir os detectores padrão. Um detector registrado pode tratar a colisão chamando resolveContact
+ * do simulador com o contato calculado por findContact.
+ * @author Willians Magalhães Primo
+ */
+public interface ColisionDetector {
+	
+	/**
+	 * Trata a colisão entre os elementos, usando as variáveis do contexto informado.
+	 */
+	public boolean detectColision(PhysicElement one, PhysicElement other, ContactContext context);
+	
+	/**
+	 * Apenas verifica se há colisão, sem alterar os elementos. Usa somente as variáveis do contexto,
+	 * podendo ser chamada por várias threads ao mesmo tempo.
+	 */
+	public boolean testColision(PhysicElement one, PhysicElement other, ContactContext context);
+	
+	/**
+	 * Calcula o contato entre os elementos sem alterá-los, guardando no contexto, através de setContact,
+	 * a normal de one para other, a profundidade da penetração e o ponto de contato. Usada pelo ImpulseSolver.
+	 */
+	public boolean findContact(PhysicElement one, PhysicElement other, ContactContext context);
+}
@@ -0,0 +1,274 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+import java.util.Arrays;
+
+/**
+ * Contexto de detecção e tratamento de colisões usado por cada tarefa da simulação.
+ * Guarda as variáveis auxiliares dos testes e do tratamento, que não podem ser compartilhadas entre threads,
+ * o buffer com os pares em que foi encontrada colisão, com o contato de cada par quando ele já foi calculado,
+ * e, nos contextos adiados, as colisões tratadas que ainda devem ser informadas na thread do jogo.
+ * @author Willians Magalhães Primo
+ */
+public class ContactContext {
+	//Variáveis auxiliares dos testes e do tratamento de colisões
+	protected Vector2D colisionPoint = new Vector2D(),
+					   onePosition = new Vector2D(),
+					   otherPosition = new Vector2D(),
+					   oneVelocity = new Vector2D(),
+					   otherVelocity = new Vector2D(),
+					   oneDelta = new Vector2D(),
+					   otherDelta = new Vector2D(),
+					   point = new Vector2D(),
+					   normal = new Vector2D(),
+					   intersection = new Vector2D(),
+					   onePoint = new Vector2D(),
+					   otherPoint = new Vector2D();
+	
+	protected double cos = 1.0f,
+					 sin = 0.0f,
+					 normalX = 1.0f,
+					 normalY = 0.0f,
+					 normalSignalX = 0.0f,
+					 normalSignalY = 0.0f,
+					 timeX = 0.0f,
+					 timeY = 0.0f,
+					 velocityX = 0.0f,
+					 velocityY = 0.0f,
+					 friction = 0.0f,
+					 elasticity = 0.0f,
+					 separationX,
+					 separationY,
+					 depth = 0.0f;
+	
+	protected boolean colided = false;
+	
+	//Buffer de pares e dos seus contatos
+	private PhysicElement[] ones = new PhysicElement[16],
+							others = new PhysicElement[16];
+	private double[] normalXs = new double[16],
+					 normalYs = new double[16],
+					 depths = new double[16],
+					 pointXs = new double[16],
+					 pointYs = new double[16];
+	private int size = 0;
+	
+	//Colisões tratadas em um contexto adiado, informadas depois na thread do jogo
+	private boolean deferred = false;
+	private PhysicElement[] contactOnes = new PhysicElement[0],
+							contactOthers = new PhysicElement[0];
+	private Vector2D[] contactPoints = new Vector2D[0];
+	private int contacts = 0,
+				pairs = 0;
+	
+	//Construtores
+	public ContactContext(){}
+	
+	public ContactContext(boolean deferred){
+		this.deferred = deferred;
+	}
+	
+	/**
+	 * Seta o contato calculado por um detector: a normal de one para other, a profundidade da penetração e o ponto.
+	 */
+	public void setContact(double normalX, double normalY, double depth, double pointX, double pointY){
+		this.normalX = normalX;
+		this.normalY = normalY;
+		this.depth = depth;
+		this.colisionPoint.set(pointX, pointY);
+	}
+	
+	/**
+	 * Retorna a coordenada x da normal do último contato calculado.
+	 */
+	public double getNormalX(){
+		return normalX;
+	}
+	
+	/**
+	 * Retorna a coordenada y da normal do último contato calculado.
+	 */
+	public double getNormalY(){
+		return normalY;
+	}
+	
+	/**
+	 * Retorna a profundidade da penetração do último contato calculado.
+	 */
+	public double getDepth(){
+		return depth;
+	}
+	
+	/**
+	 * Retorna o ponto do último contato calculado.
+	 */
+	public Vector2D getColisionPoint(){
+		return colisionPoint;
+	}
+	
+	/**
+	 * Adiciona um par ao buffer.
+	 */
+	public void add(PhysicElement one, PhysicElement other){
+		if(size == ones.length){
+			ones = Arrays.copyOf(ones, size*2);
+			others = Arrays.copyOf(others, size*2);
+			normalXs = Arrays.copyOf(normalXs, size*2);
+			normalYs = Arrays.copyOf(normalYs, size*2);
+			depths = Arrays.copyOf(depths, size*2);
+			pointXs = Arrays.copyOf(pointXs, size*2);
+			pointYs = Arrays.copyOf(pointYs, size*2);
+		}
+		ones[size] = one;
+		others[size] = other;
+		size++;
+	}
+	
+	/**
+	 * Adiciona ao buffer um par junto com o último contato calculado neste contexto.
+	 */
+	public void addWithContact(PhysicElement one, PhysicElement other){
+		add(one, other);
+		normalXs[size - 1] = normalX;
+		normalYs[size - 1] = normalY;
+		depths[size - 1] = depth;
+		pointXs[size - 1] = colisionPoint.getX();
+		pointYs[size - 1] = colisionPoint.getY();
+	}
+	
+	/**
+	 * Copia para este contexto o contato de um par do buffer de outro contexto.
+	 */
+	public void setContact(ContactContext context, int index){
+		setContact(context.normalXs[index], context.normalYs[index], context.depths[index], context.pointXs[index], context.pointYs[index]);
+	}
+	
+	/**
+	 * Esvazia o buffer de pares, liberando as referências aos elementos.
+	 */
+	public void clear(){
+		Arrays.fill(ones, 0, size, null);
+		Arrays.fill(others, 0, size, null);
+		size = 0;
+	}
+	
+	/**
+	 * Retorna o número de pares no buffer.
+	 */
+	public int getSize(){
+		return size;
+	}
+	
+	/**
+	 * Retorna o primeiro elemento de um par do buffer.
+	 */
+	public PhysicElement getOne(int index){
+		return ones[index];
+	}
+	
+	/**
+	 * Retorna o segundo elemento de um par do buffer.
+	 */
+	public PhysicElement getOther(int index){
+		return others[index];
+	}
+	
+	/**
+	 * Guarda uma colisão tratada para ser informada depois. Os pontos são copiados para vetores reaproveitados.
+	 */
+	public void addContact(PhysicElement one, PhysicElement other, Vector2D colisionPoint){
+		if(contacts == contactOnes.length){
+			int capacity = Math.max(contacts*2, 16);
+			contactOnes = Arrays.copyOf(contactOnes, capacity);
+			contactOthers = Arrays.copyOf(contactOthers, capacity);
+			contactPoints = Arrays.copyOf(contactPoints, capacity);
+		}
+		if(contactPoints[contacts] == null){
+			contactPoints[contacts] = new Vector2D();
+		}
+		contactOnes[contacts] = one;
+		contactOthers[contacts] = other;
+		contactPoints[contacts].set(colisionPoint);
+		contacts++;
+	}
+	
+	/**
+	 * Esvazia as colisões guardadas e o contador de pares testados.
+	 */
+	public void clearContacts(){
+		Arrays.fill(contactOnes, 0, contacts, null);
+		Arrays.fill(contactOthers, 0, contacts, null);
+		contacts = 0;
+		pairs = 0;
+	}
+	
+	/**
+	 * Retorna o número de colisões guardadas.
+	 */
+	public int getContacts(){
+		return contacts;
+	}
+	
+	/**
+	 * Retorna o primeiro elemento de uma colisão guardada.
+	 */
+	public PhysicElement getContactOne(int index){
+		return contactOnes[index];
+	}
+	
+	/**
+	 * Retorna o segundo elemento de uma colisão guardada.
+	 */
+	public PhysicElement getContactOther(int index){
+		return contactOthers[index];
+	}
+	
+	/**
+	 * Retorna o ponto de uma colisão guardada.
+	 */
+	public Vector2D getContactPoint(int index){
+		return contactPoints[index];
+	}
+	
+	/**
+	 * Conta um par tratado pelo detector de colisão da sua forma.
+	 */
+	public void addPair(){
+		pairs++;
+	}
+	
+	/**
+	 * Retorna o número de pares tratados desde a última limpeza.
+	 */
+	public int getPairs(){
+		return pairs;
+	}
+	
+	/**
+	 * Retorna se as colisões tratadas neste contexto são guardadas para serem informadas depois.
+	 */
+	public boolean isDeferred(){
+		return deferred;
+	}
+}
@@ -0,0 +1,300 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+import java.util.Arrays;
+
+/**
+ * Fila de eventos de contato. Durante a simulação guarda as colisões encontradas e, depois de resolvidas,
+ * despacha um único evento por par de elementos: início quando o par passa a se tocar, colisão a cada quadro
+ * em que se toca e fim quando deixa de se tocar.
+ * @author Willians Magalhães Primo
+ */
+public class ContactEventQueue {
+	//Contatos do quadro atual
+	private long[] keys = new long[16];
+	private PhysicElement[] ones = new PhysicElement[16],
+							others = new PhysicElement[16];
+	private Vector2D[] points = new Vector2D[16];
+	private int[] order = new int[16];
+	private int size = 0;
+	
+	//Pares em contato no quadro anterior, ordenados pela chave
+	private long[] previousKeys = new long[16];
+	private PhysicElement[] previousOnes = new PhysicElement[16],
+							previousOthers = new PhysicElement[16];
+	private int previousSize = 0;
+	
+	//Pares em contato no quadro atual, ordenados pela chave
+	private long[] currentKeys = new long[16];
+	private PhysicElement[] currentOnes = new PhysicElement[16],
+							currentOthers = new PhysicElement[16];
+	private int currentSize = 0;
+	
+	/**
+	 * Retorna a chave de um par, que é a mesma independente da ordem dos elementos.
+	 */
+	public static long getPairKey(PhysicElement one, PhysicElement other){
+		int oneCode = one.getCode(), otherCode = other.getCode();
+		if(oneCode > otherCode){
+			int code = oneCode;
+			oneCode = otherCode;
+			otherCode = code;
+		}
+		return ((long)oneCode << 32) | (otherCode & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * Adiciona uma colisão à fila. O ponto de colisão é copiado.
+	 */
+	public void add(PhysicElement one, PhysicElement other, Vector2D colisionPoint){
+		if(size == keys.length){
+			keys = Arrays.copyOf(keys, size*2);
+			ones = Arrays.copyOf(ones, size*2);
+			others = Arrays.copyOf(others, size*2);
+			points = Arrays.copyOf(points, size*2);
+			order = Arrays.copyOf(order, size*2);
+		}
+		if(points[size] == null){
+			points[size] = new Vector2D();
+		}
+		keys[size] = getPairKey(one, other);
+		ones[size] = one;
+		others[size] = other;
+		points[size].set(colisionPoint);
+		size++;
+	}
+	
+	/**
+	 * Despacha os eventos do quadro e esvazia a fila. Para cada par é usada a primeira colisão adicionada.
+	 * Elementos deletados por um evento anterior não recebem mais eventos de início e colisão, apenas de fim.
+	 * Os pares em que nenhum dos elementos está ativo, como um corpo em repouso sobre o chão ou dentro de um sensor estático,
+	 * não são testados pelo simulador, então continuam em contato sem eventos até que um deles volte a se mover. Assim o
+	 * início de um contato não se repete quando um corpo entra em repouso e é acordado.
+	 */
+	public void dispatch(){
+		sort();
+		
+		//Percorre os pares atuais e anteriores ao mesmo tempo, pois os dois estão ordenados
+		ensureCurrentCapacity(keys.length + previousSize);
+		currentSize = 0;
+		int previous = 0;
+		for(int i = 0; i < size; i++){
+			int index = order[i];
+			if(i > 0 && keys[order[i - 1]] == keys[index]){
+				continue;
+			}
+			
+			long key = keys[index];
+			while(previous < previousSize && previousKeys[previous] < key){
+				keepOrEnd(previous);
+				previous++;
+			}
+			
+			PhysicElement one = ones[index], other = others[index];
+			boolean began = previous == previousSize || previousKeys[previous] != key;
+			if(!began){
+				previous++;
+			}
+			currentKeys[currentSize] = key;
+			currentOnes[currentSize] = one;
+			currentOthers[currentSize] = other;
+			currentSize++;
+			
+			if(!one.isDeleted() && !other.isDeleted()){
+				if(began){
+					one.colisionBegin(other, points[index]);
+					other.colisionBegin(one, points[index]);
+				}
+				one.colide(other, points[index]);
+				other.colide(one, points[index]);
+			}
+		}
+		while(previous < previousSize){
+			keepOrEnd(previous);
+			previous++;
+		}
+		
+		swap();
+		Arrays.fill(ones, 0, size, null);
+		Arrays.fill(others, 0, size, null);
+		size = 0;
+	}
+	
+	/**
+	 * Esvazia a fila e esquece os pares em contato, sem despachar eventos.
+	 */
+	public void clear(){
+		Arrays.fill(ones, 0, size, null);
+		Arrays.fill(others, 0, size, null);
+		Arrays.fill(previousOnes, 0, previousSize, null);
+		Arrays.fill(previousOthers, 0, previousSize, null);
+		size = 0;
+		previousSize = 0;
+	}
+	
+	/**
+	 * Retorna o número de colisões na fila.
+	 */
+	public int getSize(){
+		return size;
+	}
+	
+	/**
+	 * Retorna o número de pares em contato no último quadro despachado.
+	 */
+	public int getContacts(){
+		return previousSize;
+	}
+	
+	/**
+	 * Retorna o primeiro elemento de um par em contato no último quadro despachado. Os pares estão ordenados pela chave.
+	 */
+	public PhysicElement getContactOne(int index){
+		return previousOnes[index];
+	}
+	
+	/**
+	 * Retorna o segundo elemento de um par em contato no último quadro despachado.
+	 */
+	public PhysicElement getContactOther(int index){
+		return previousOthers[index];
+	}
+	
+	/**
+	 * Esvazia a fila e substitui os pares em contato pelos dados, sem despachar eventos, como ao voltar a simulação no tempo.
+	 * Os pares devem estar ordenados pela chave, como os retornados por getContactOne e getContactOther.
+	 */
+	public void setContacts(PhysicElement[] ones, PhysicElement[] others, int size){
+		clear();
+		if(previousKeys.length < size){
+			previousKeys = new long[size];
+			previousOnes = new PhysicElement[size];
+			previousOthers = new PhysicElement[size];
+		}
+		for(int i = 0; i < size; i++){
+			previousKeys[i] = getPairKey(ones[i], others[i]);
+			previousOnes[i] = ones[i];
+			previousOthers[i] = others[i];
+		}
+		previousSize = size;
+	}
+	
+	/**
+	 * Mantém um par anterior que não foi encontrado no quadro entre os pares atuais, caso continue em contato 
+	 * sem ser testado, ou despacha o seu evento de fim.
+	 */
+	private void keepOrEnd(int previous){
+		PhysicElement one = previousOnes[previous], other = previousOthers[previous];
+		if(isHeld(one, other)){
+			currentKeys[currentSize] = previousKeys[previous];
+			currentOnes[currentSize] = one;
+			currentOthers[currentSize] = other;
+			currentSize++;
+		}else{
+			end(one, other);
+		}
+	}
+	
+	/**
+	 * Retorna se um par continua em contato mesmo sem ser testado: nenhum dos elementos está ativo nem deletado.
+	 */
+	private boolean isHeld(PhysicElement one, PhysicElement other){
+		return !one.isActive() && !other.isActive() && !one.isDeleted() && !other.isDeleted();
+	}
+	
+	/**
+	 * Despacha o evento de fim de contato para os dois elementos do par.
+	 */
+	private void end(PhysicElement one, PhysicElement other){
+		one.colisionEnd(other);
+		other.colisionEnd(one);
+	}
+	
+	/**
+	 * Os pares atuais passam a ser os anteriores, reaproveitando os vetores.
+	 */
+	private void swap(){
+		Arrays.fill(previousOnes, 0, previousSize, null);
+		Arrays.fill(previousOthers, 0, previousSize, null);
+		
+		long[] swapKeys = previousKeys;
+		previousKeys = currentKeys;
+		currentKeys = swapKeys;
+		
+		PhysicElement[] swapElements = previousOnes;
+		previousOnes = currentOnes;
+		currentOnes = swapElements;
+		
+		swapElements = previousOthers;
+		previousOthers = currentOthers;
+		currentOthers = swapElements;
+		
+		previousSize = currentSize;
+		currentSize = 0;
+	}
+	
+	/**
+	 * Garante espaço para os pares do quadro atual.
+	 */
+	private void ensureCurrentCapacity(int capacity){
+		if(currentKeys.length < capacity){
+			currentKeys = new long[capacity];
+			currentOnes = new PhysicElement[capacity];
+			currentOthers = new PhysicElement[capacity];
+		}
+	}
+	
+	/**
+	 * Ordena os índices das colisões pela chave do par e, em caso de empate, pela ordem em que foram adicionadas.
+	 */
+	private void sort(){
+		for(int i = 0; i < size; i++){
+			order[i] = i;
+		}
+		
+		int gap = 1;
+		while(gap < size/3){
+			gap = gap*3 + 1;
+		}
+		while(gap > 0){
+			for(int i = gap; i < size; i++){
+				int index = order[i];
+				int j = i;
+				while(j >= gap && greater(order[j - gap], index)){
+					order[j] = order[j - gap];
+					j -= gap;
+				}
+				order[j] = index;
+			}
+			gap /= 3;
+		}
+	}
+	
+	/**
+	 * Compara duas colisões pela chave do par e pela ordem em que foram adicionadas.
+	 */
+	private boolean greater(int one, int other){
+		return keys[one] > keys[other] || (keys[one] == keys[other] && one > other);
+	}
+}
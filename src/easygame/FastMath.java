@@ -0,0 +1,129 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+/**
+ * Seno, cosseno e arco tangente aproximados por tabelas com interpolação linear.
+ * As tabelas têm 2^precisão entradas e são geradas com StrictMath, então os resultados são os mesmos em qualquer dispositivo.
+ * Com n entradas, o erro absoluto do seno e do cosseno fica abaixo de (2*PI/n)^2/8 e o do arco tangente abaixo de 0.082/n^2,
+ * o que com a precisão padrão de 12 bits dá cerca de 3e-7 e 5e-9 radianos.
+ * @author Willians Magalhães Primo
+ */
+public class FastMath {
+	private static final double TWO_PI = 2*StrictMath.PI,
+								HALF_PI = StrictMath.PI/2;
+	
+	private static int precision = 0,
+					   size = 0;
+	private static double sinScale = 0.0f;
+	private static double[] sinTable = null,
+							atanTable = null;
+	
+	static{
+		setPrecision(12);
+	}
+	
+	/**
+	 * Retorna o número de bits das tabelas.
+	 */
+	public static int getPrecision() {
+		return precision;
+	}
+	
+	/**
+	 * Seta o número de bits das tabelas, entre 4 e 20, e as recria. Deve ser chamado antes do início do jogo.
+	 */
+	public static void setPrecision(int precision) {
+		FastMath.precision = Math.min(Math.max(precision, 4), 20);
+		size = 1 << FastMath.precision;
+		sinScale = size/TWO_PI;
+		
+		sinTable = new double[size + 1];
+		atanTable = new double[size + 1];
+		for(int i = 0; i <= size; i++){
+			sinTable[i] = StrictMath.sin(i*TWO_PI/size);
+			atanTable[i] = StrictMath.atan((double)i/size);
+		}
+	}
+	
+	/**
+	 * Retorna o seno aproximado do ângulo em radianos.
+	 */
+	public static double sin(double angle){
+		double index = angle*sinScale;
+		double floor = Math.floor(index);
+		int i = (int)((long)floor & (size - 1));
+		return sinTable[i] + (sinTable[i + 1] - sinTable[i])*(index - floor);
+	}
+	
+	/**
+	 * Retorna o cosseno aproximado do ângulo em radianos.
+	 */
+	public static double cos(double angle){
+		return sin(angle + HALF_PI);
+	}
+	
+	/**
+	 * Retorna o arco tangente aproximado do valor.
+	 */
+	public static double atan(double value){
+		if(value < 0){
+			return -atan(-value);
+		}
+		if(value > 1){
+			return HALF_PI - atanUnit(1/value);
+		}
+		return atanUnit(value);
+	}
+	
+	/**
+	 * Retorna o ângulo aproximado do ponto (x, y), entre -PI e PI.
+	 */
+	public static double atan2(double y, double x){
+		if(x > 0){
+			return atan(y/x);
+		}else if(x < 0){
+			return y >= 0 ? atan(y/x) + StrictMath.PI : atan(y/x) - StrictMath.PI;
+		}else if(y > 0){
+			return HALF_PI;
+		}else if(y < 0){
+			return -HALF_PI;
+		}
+		return 0.0f;
+	}
+	
+	/**
+	 * Arco tangente de um valor entre 0 e 1, ou NaN.
+	 */
+	private static double atanUnit(double value){
+		if(value != value){
+			return value;
+		}
+		double index = value*size;
+		int i = (int)index;
+		if(i >= size){
+			return atanTable[size];
+		}
+		return atanTable[i] + (atanTable[i + 1] - atanTable[i])*(index - i);
+	}
+}
@@ -56,6 +56,10 @@ public class GameLoop extends Thread {
 		long ticksPS = 1000/gameView.getFPS();//Duvida
 		long remaningTime, startTime;
 		
+		//Acumulador do passo fixo, em nanosegundos
+		long accumulator = 0, lastTime = System.nanoTime(), currentTime, step;
+		int updates;
+		
 		while(running){
 			//Trava a edição do canvas do SufaceView e pega o Canvas deste para edição
 			Canvas canvas = gameView.getHolder().lockCanvas();
@@ -64,7 +68,28 @@ public class GameLoop extends Thread {
 			//Essa parte serve para impedir que outra parte da aplicação, no caso os event listeners, acessem
 			//O surface Holder enquanto os metos onDraw e onUpdade sejam executados
 			try{
-				gameView.update();
+				if(gameView.getUpdateRate() > 0){
+					currentTime = System.nanoTime();
+					accumulator += currentTime - lastTime;
+					lastTime = currentTime;
+					
+					step = 1000000000L/gameView.getUpdateRate();
+					updates = 0;
+					while(accumulator >= step && updates < gameView.getMaximumUpdates()){
+						gameView.update();
+						accumulator -= step;
+						updates++;
+					}
+					
+					//Descarta o atraso que não pôde ser recuperado
+					if(accumulator >= step){
+						accumulator %= step;
+					}
+					gameView.setInterpolation((double)accumulator/step);
+				}else{
+					lastTime = System.nanoTime();
+					gameView.update();
+				}
 				gameView.onDraw(canvas);
 			}finally{
 				if(canvas != null){
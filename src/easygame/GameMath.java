@@ -0,0 +1,122 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+/**
+ * Funções matemáticas usadas pela física e pelo desenho. No modo determinístico são usadas as implementações de StrictMath,
+ * que dão o mesmo resultado, bit a bit, em qualquer dispositivo, permitindo replays e jogos em lockstep.
+ * No modo rápido as funções trigonométricas são aproximadas pelas tabelas de FastMath.
+ * As classes da física não usam strictfp: a aritmética de ponto flutuante já é estrita no Android e, a partir do Java 17,
+ * em qualquer JVM, de modo que o determinismo depende apenas de usar StrictMath no lugar de Math.
+ * @author Willians Magalhães Primo
+ */
+public class GameMath {
+	public enum Mode{DEFAULT, DETERMINISTIC, FAST}
+	
+	private static final double DEGREES_TO_RADIANS = StrictMath.PI/180.0,
+								RADIANS_TO_DEGREES = 180.0/StrictMath.PI;
+	
+	private static Mode mode = Mode.DEFAULT;
+	
+	/**
+	 * Retorna o modo das funções matemáticas.
+	 */
+	public static Mode getMode() {
+		return mode;
+	}
+	
+	/**
+	 * Seta o modo das funções matemáticas. Deve ser escolhido antes do início da simulação.
+	 */
+	public static void setMode(Mode mode) {
+		GameMath.mode = mode;
+	}
+	
+	/**
+	 * Retorna se as funções estão no modo determinístico.
+	 */
+	public static boolean isDeterministic() {
+		return mode == Mode.DETERMINISTIC;
+	}
+	
+	/**
+	 * Retorna o seno do ângulo em radianos.
+	 */
+	public static double sin(double angle){
+		if(mode == Mode.FAST){
+			return FastMath.sin(angle);
+		}
+		return mode == Mode.DETERMINISTIC ? StrictMath.sin(angle) : Math.sin(angle);
+	}
+	
+	/**
+	 * Retorna o cosseno do ângulo em radianos.
+	 */
+	public static double cos(double angle){
+		if(mode == Mode.FAST){
+			return FastMath.cos(angle);
+		}
+		return mode == Mode.DETERMINISTIC ? StrictMath.cos(angle) : Math.cos(angle);
+	}
+	
+	/**
+	 * Retorna o arco tangente do valor.
+	 */
+	public static double atan(double value){
+		if(mode == Mode.FAST){
+			return FastMath.atan(value);
+		}
+		return mode == Mode.DETERMINISTIC ? StrictMath.atan(value) : Math.atan(value);
+	}
+	
+	/**
+	 * Retorna o ângulo do ponto (x, y).
+	 */
+	public static double atan2(double y, double x){
+		if(mode == Mode.FAST){
+			return FastMath.atan2(y, x);
+		}
+		return mode == Mode.DETERMINISTIC ? StrictMath.atan2(y, x) : Math.atan2(y, x);
+	}
+	
+	/**
+	 * Retorna a base elevada ao expoente.
+	 */
+	public static double pow(double base, double exponent){
+		return mode == Mode.DETERMINISTIC ? StrictMath.pow(base, exponent) : Math.pow(base, exponent);
+	}
+	
+	/**
+	 * Converte um ângulo de graus para radianos.
+	 */
+	public static double toRadians(double angle){
+		return mode != Mode.DEFAULT ? angle*DEGREES_TO_RADIANS : Math.toRadians(angle);
+	}
+	
+	/**
+	 * Converte um ângulo de radianos para graus.
+	 */
+	public static double toDegrees(double angle){
+		return mode != Mode.DEFAULT ? angle*RADIANS_TO_DEGREES : Math.toDegrees(angle);
+	}
+}
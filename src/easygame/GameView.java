@@ -44,6 +44,11 @@ public class GameView extends SurfaceView implements OnGestureListener, OnScaleG
 	//Propriedades do GameView
 	protected int lastEvent = MotionEvent.ACTION_CANCEL;
 	private int FPS = 30;
+	
+	//Passo fixo de atualização, com zero o jogo é atualizado uma vez por quadro desenhado
+	private int updateRate = 0,
+				maximumUpdates = 5;
+	private double interpolation = 1.0f;
 	private GameLoop gameLoop;
 	private SurfaceHolder holder;
 	private GestureDetector gestureDetector = null;
@@ -316,6 +321,53 @@ public class GameView extends SurfaceView implements OnGestureListener, OnScaleG
 		this.FPS = fPS;
 	}
 	
+	/**
+	 * Retorna o número de atualizações por segundo do passo fixo, ou zero caso o jogo seja atualizado a cada quadro.
+	 */
+	public int getUpdateRate() {
+		return updateRate;
+	}
+
+	/**
+	 * Seta o número de atualizações por segundo do passo fixo. Com o passo fixo a velocidade do jogo deixa de 
+	 * depender do FPS, podendo ser feitas várias ou nenhuma atualização a cada quadro desenhado.
+	 * Com zero o jogo volta a ser atualizado uma vez por quadro.
+	 */
+	public void setUpdateRate(int updateRate) {
+		this.updateRate = updateRate;
+		this.interpolation = 1.0f;
+	}
+
+	/**
+	 * Retorna o número máximo de atualizações feitas em um quadro.
+	 */
+	public int getMaximumUpdates() {
+		return maximumUpdates;
+	}
+
+	/**
+	 * Seta o número máximo de atualizações feitas em um quadro. Quando o jogo atrasa mais do que isso, 
+	 * o tempo restante é descartado em vez de acumulado.
+	 */
+	public void setMaximumUpdates(int maximumUpdates) {
+		this.maximumUpdates = maximumUpdates;
+	}
+
+	/**
+	 * Retorna a fração do passo fixo já decorrida desde a última atualização, 
+	 * usada para interpolar o desenho entre o estado anterior e o atual dos elementos.
+	 */
+	public double getInterpolation() {
+		return interpolation;
+	}
+
+	/**
+	 * Seta a fração do passo fixo já decorrida desde a última atualização.
+	 */
+	public void setInterpolation(double interpolation) {
+		this.interpolation = interpolation;
+	}
+	
 	/**
 	 * Retorna o Simulador de física do Jogo.
 	 */
@@ -0,0 +1,465 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+import java.util.Arrays;
+
+/**
+ * Resolvedor iterativo de contatos por impulsos. Cada par em contato tem uma variedade de contato, guardada
+ * entre as simulações pela chave do par, cujos impulsos acumulados são reaplicados no início da simulação seguinte
+ * (warm starting). Assim, pilhas e montes de corpos convergem em poucas iterações em vez de tremer.
+ * Os impulsos são lineares, como o restante do simulador. A penetração é corrigida depois dos impulsos, movendo
+ * os corpos por uma fração da profundidade, sem alterar as velocidades para que a correção não faça as pilhas pularem.
+ * @author Willians Magalhães Primo
+ */
+public class ImpulseSolver {
+	/**
+	 * Variedade de contato de um par, com o ponto de contato do quadro e os impulsos acumulados.
+	 */
+	private static class Manifold {
+		private PhysicElement one = null,
+							  other = null;
+		private long key = 0;
+		private double normalX, normalY, depth,
+					   oneX, oneY, otherX, otherY,
+					   normalImpulse, tangentImpulse,
+					   oneInverseMass, otherInverseMass,
+					   mass, restitution, friction;
+	}
+	
+	private int iterations = 8,
+				positionIterations = 3;
+	private double correction = 0.5f,
+				   slop = 0.5f,
+				   restitutionVelocity = 1.0f;
+	private boolean warmStarting = true;
+	
+	//Variedades do quadro atual e do anterior, cada uma com a sua tabela de espalhamento pela chave do par
+	private Manifold[] manifolds = new Manifold[0],
+					   previousManifolds = new Manifold[0];
+	private int size = 0,
+				previousSize = 0;
+	private int[] slots = new int[16],
+				  previousSlots = new int[16];
+	
+	/**
+	 * Retorna se o par já tem contato no quadro atual.
+	 */
+	public boolean contains(PhysicElement one, PhysicElement other){
+		return find(slots, manifolds, ContactEventQueue.getPairKey(one, other)) != null;
+	}
+	
+	/**
+	 * Adiciona o contato de um par, com a normal de one para other e a profundidade da penetração.
+	 * Retorna falso caso o par já tenha contato no quadro atual.
+	 */
+	public boolean add(PhysicElement one, PhysicElement other, double normalX, double normalY, double depth){
+		long key = ContactEventQueue.getPairKey(one, other);
+		if(find(slots, manifolds, key) != null){
+			return false;
+		}
+		
+		if(size == manifolds.length){
+			manifolds = Arrays.copyOf(manifolds, Math.max(size*2, 16));
+		}
+		if(manifolds[size] == null){
+			manifolds[size] = new Manifold();
+		}
+		Manifold manifold = manifolds[size];
+		manifold.one = one;
+		manifold.other = other;
+		manifold.key = key;
+		manifold.normalX = normalX;
+		manifold.normalY = normalY;
+		manifold.depth = depth;
+		manifold.oneX = one.getPosition().getX();
+		manifold.oneY = one.getPosition().getY();
+		manifold.otherX = other.getPosition().getX();
+		manifold.otherY = other.getPosition().getY();
+		manifold.normalImpulse = 0.0f;
+		manifold.tangentImpulse = 0.0f;
+		size++;
+		
+		if(size*2 > slots.length){
+			slots = new int[slots.length*2];
+			for(int i = 0; i < size; i++){
+				insert(slots, manifolds[i].key, i);
+			}
+		}else{
+			insert(slots, key, size - 1);
+		}
+		return true;
+	}
+	
+	/**
+	 * Resolve os contatos do quadro e os guarda para o quadro seguinte.
+	 */
+	public void solve(){
+		Manifold manifold = null, previous = null;
+		for(int i = 0; i < size; i++){
+			manifold = manifolds[i];
+			prepare(manifold);
+			
+			previous = warmStarting ? find(previousSlots, previousManifolds, manifold.key) : null;
+			if(previous != null){
+				//Quando a ordem dos elementos muda, a normal e a tangente mudam de sentido juntas com a velocidade relativa,
+				//então os dois impulsos acumulados continuam valendo como estão
+				manifold.normalImpulse = previous.normalImpulse;
+				manifold.tangentImpulse = previous.tangentImpulse;
+				apply(manifold, manifold.normalImpulse, manifold.tangentImpulse);
+			}
+		}
+		
+		for(int iteration = 0; iteration < iterations; iteration++){
+			for(int i = 0; i < size; i++){
+				solve(manifolds[i]);
+			}
+		}
+		
+		for(int iteration = 0; iteration < positionIterations; iteration++){
+			for(int i = 0; i < size; i++){
+				correct(manifolds[i]);
+			}
+		}
+		
+		swap();
+	}
+	
+	/**
+	 * Descarta todas as variedades guardadas, como ao trocar de cena.
+	 */
+	public void clear(){
+		for(int i = 0; i < size; i++){
+			manifolds[i].one = manifolds[i].other = null;
+		}
+		for(int i = 0; i < previousSize; i++){
+			previousManifolds[i].one = previousManifolds[i].other = null;
+		}
+		Arrays.fill(slots, 0);
+		Arrays.fill(previousSlots, 0);
+		size = 0;
+		previousSize = 0;
+	}
+	
+	/**
+	 * Retorna o número de variedades guardadas para o warm starting da próxima resolução.
+	 */
+	public int getWarmStarts(){
+		return previousSize;
+	}
+	
+	/**
+	 * Retorna a chave do par de uma variedade guardada para o warm starting.
+	 */
+	public long getWarmStartKey(int index){
+		return previousManifolds[index].key;
+	}
+	
+	/**
+	 * Retorna o impulso normal acumulado de uma variedade guardada para o warm starting.
+	 */
+	public double getWarmStartNormalImpulse(int index){
+		return previousManifolds[index].normalImpulse;
+	}
+	
+	/**
+	 * Retorna o impulso de atrito acumulado de uma variedade guardada para o warm starting.
+	 */
+	public double getWarmStartTangentImpulse(int index){
+		return previousManifolds[index].tangentImpulse;
+	}
+	
+	/**
+	 * Substitui as variedades guardadas para o warm starting pelos impulsos dados, como ao voltar a simulação no tempo.
+	 * Apenas a chave e os impulsos de uma variedade são usados no warm starting, então eles bastam para repetir a resolução.
+	 */
+	public void setWarmStarts(long[] keys, double[] normalImpulses, double[] tangentImpulses, int count){
+		clear();
+		if(previousManifolds.length < count){
+			previousManifolds = Arrays.copyOf(previousManifolds, count);
+		}
+		int capacity = previousSlots.length;
+		while(count*2 > capacity){
+			capacity *= 2;
+		}
+		if(capacity != previousSlots.length){
+			previousSlots = new int[capacity];
+		}
+		
+		for(int i = 0; i < count; i++){
+			if(previousManifolds[i] == null){
+				previousManifolds[i] = new Manifold();
+			}
+			previousManifolds[i].key = keys[i];
+			previousManifolds[i].normalImpulse = normalImpulses[i];
+			previousManifolds[i].tangentImpulse = tangentImpulses[i];
+			insert(previousSlots, keys[i], i);
+		}
+		previousSize = count;
+	}
+	
+	/**
+	 * Calcula as massas e a velocidade de ricochete de uma variedade.
+	 */
+	private void prepare(Manifold manifold){
+		PhysicElement one = manifold.one, other = manifold.other;
+		manifold.oneInverseMass = getInverseMass(one);
+		manifold.otherInverseMass = getInverseMass(other);
+		double inverseMass = manifold.oneInverseMass + manifold.otherInverseMass;
+		manifold.mass = inverseMass > 0 ? 1.0f/inverseMass : 0.0f;
+		manifold.friction = one.getFriction() + other.getFriction();
+		
+		double velocity = getNormalVelocity(manifold);
+		manifold.restitution = velocity < -restitutionVelocity ? -(one.getElasticity() + other.getElasticity())*velocity : 0.0f;
+	}
+	
+	/**
+	 * Executa uma iteração em uma variedade, limitando o impulso normal acumulado a valores que afastam os corpos
+	 * e o de atrito ao cone de atrito.
+	 */
+	private void solve(Manifold manifold){
+		if(manifold.mass == 0){
+			return;
+		}
+		
+		double impulse = manifold.mass*(manifold.restitution - getNormalVelocity(manifold)),
+			   accumulated = Math.max(manifold.normalImpulse + impulse, 0.0f);
+		impulse = accumulated - manifold.normalImpulse;
+		manifold.normalImpulse = accumulated;
+		apply(manifold, impulse, 0.0f);
+		
+		double maximum = manifold.friction*manifold.normalImpulse,
+			   tangentImpulse = -manifold.mass*getTangentVelocity(manifold);
+		accumulated = Math.max(-maximum, Math.min(manifold.tangentImpulse + tangentImpulse, maximum));
+		tangentImpulse = accumulated - manifold.tangentImpulse;
+		manifold.tangentImpulse = accumulated;
+		apply(manifold, 0.0f, tangentImpulse);
+	}
+	
+	/**
+	 * Afasta os corpos de uma variedade por uma fração da penetração que passa da tolerada, 
+	 * dividindo o deslocamento pelo inverso das massas. A penetração é a da detecção descontado o quanto os corpos
+	 * já se afastaram na direção da normal, já que as posições são corrigidas várias vezes.
+	 */
+	private void correct(Manifold manifold){
+		Vector2D one = manifold.one.getPosition(), other = manifold.other.getPosition();
+		double depth = manifold.depth - slop
+					 - ((other.getX() - manifold.otherX) - (one.getX() - manifold.oneX))*manifold.normalX
+					 - ((other.getY() - manifold.otherY) - (one.getY() - manifold.oneY))*manifold.normalY;
+		if(manifold.mass == 0 || depth <= 0){
+			return;
+		}
+		double x = manifold.normalX*depth*correction*manifold.mass,
+			   y = manifold.normalY*depth*correction*manifold.mass;
+		if(manifold.oneInverseMass > 0){
+			manifold.one.addToPosition(-x*manifold.oneInverseMass, -y*manifold.oneInverseMass);
+		}
+		if(manifold.otherInverseMass > 0){
+			manifold.other.addToPosition(x*manifold.otherInverseMass, y*manifold.otherInverseMass);
+		}
+	}
+	
+	/**
+	 * Aplica os impulsos normal e tangente aos dois elementos, em sentidos opostos.
+	 */
+	private void apply(Manifold manifold, double normalImpulse, double tangentImpulse){
+		double x = manifold.normalX*normalImpulse - manifold.normalY*tangentImpulse,
+			   y = manifold.normalY*normalImpulse + manifold.normalX*tangentImpulse;
+		if(manifold.oneInverseMass > 0){
+			manifold.one.getVelocity().addTo(-x*manifold.oneInverseMass, -y*manifold.oneInverseMass);
+		}
+		if(manifold.otherInverseMass > 0){
+			manifold.other.getVelocity().addTo(x*manifold.otherInverseMass, y*manifold.otherInverseMass);
+		}
+	}
+	
+	/**
+	 * Retorna a velocidade relativa do par na direção da normal, negativa quando os corpos se aproximam.
+	 */
+	private double getNormalVelocity(Manifold manifold){
+		Vector2D one = manifold.one.getVelocity(), other = manifold.other.getVelocity();
+		return (other.getX() - one.getX())*manifold.normalX + (other.getY() - one.getY())*manifold.normalY;
+	}
+	
+	/**
+	 * Retorna a velocidade relativa do par na direção tangente à normal.
+	 */
+	private double getTangentVelocity(Manifold manifold){
+		Vector2D one = manifold.one.getVelocity(), other = manifold.other.getVelocity();
+		return -(other.getX() - one.getX())*manifold.normalY + (other.getY() - one.getY())*manifold.normalX;
+	}
+	
+	/**
+	 * Retorna o inverso da massa de um elemento, zero para os que não se movem com as colisões.
+	 */
+	private double getInverseMass(PhysicElement element){
+		if(element.isStatic() || !element.isRigidBody()){
+			return 0.0f;
+		}
+		return element.getWeight() > 0 ? 1.0f/element.getWeight() : 1.0f;
+	}
+	
+	/**
+	 * Troca as variedades do quadro atual para o anterior e esvazia as do quadro atual.
+	 */
+	private void swap(){
+		for(int i = 0; i < previousSize; i++){
+			previousManifolds[i].one = previousManifolds[i].other = null;
+		}
+		
+		Manifold[] swapManifolds = previousManifolds;
+		previousManifolds = manifolds;
+		manifolds = swapManifolds;
+		int[] swapSlots = previousSlots;
+		previousSlots = slots;
+		slots = swapSlots;
+		previousSize = size;
+		
+		Arrays.fill(slots, 0);
+		size = 0;
+	}
+	
+	/**
+	 * Procura a variedade de uma chave na tabela de espalhamento, retornando nulo caso não exista.
+	 */
+	private Manifold find(int[] slots, Manifold[] manifolds, long key){
+		int mask = slots.length - 1, slot = hash(key) & mask;
+		while(slots[slot] != 0){
+			if(manifolds[slots[slot] - 1].key == key){
+				return manifolds[slots[slot] - 1];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+	
+	/**
+	 * Insere o índice de uma variedade na tabela de espalhamento. Os espaços guardam o índice mais um, zero é vazio.
+	 */
+	private void insert(int[] slots, long key, int index){
+		int mask = slots.length - 1, slot = hash(key) & mask;
+		while(slots[slot] != 0){
+			slot = (slot + 1) & mask;
+		}
+		slots[slot] = index + 1;
+	}
+	
+	/**
+	 * Espalha os bits da chave de um par.
+	 */
+	private int hash(long key){
+		key *= 0x9E3779B97F4A7C15L;
+		return (int)(key ^ (key >>> 32));
+	}
+	
+	/**
+	 * Retorna o número de iterações do resolvedor.
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+	
+	/**
+	 * Seta o número de iterações do resolvedor. Mais iterações deixam as pilhas mais rígidas.
+	 */
+	public void setIterations(int iterations) {
+		this.iterations = Math.max(iterations, 1);
+	}
+	
+	/**
+	 * Retorna o número de iterações da correção das posições.
+	 */
+	public int getPositionIterations() {
+		return positionIterations;
+	}
+	
+	/**
+	 * Seta o número de iterações da correção das posições.
+	 */
+	public void setPositionIterations(int positionIterations) {
+		this.positionIterations = Math.max(positionIterations, 0);
+	}
+	
+	/**
+	 * Retorna a fração da penetração corrigida a cada iteração da correção das posições.
+	 */
+	public double getCorrection() {
+		return correction;
+	}
+	
+	/**
+	 * Seta a fração da penetração corrigida a cada iteração da correção das posições.
+	 */
+	public void setCorrection(double correction) {
+		this.correction = correction;
+	}
+	
+	/**
+	 * Retorna a penetração tolerada, que não é corrigida para que os contatos em repouso não tremam.
+	 */
+	public double getSlop() {
+		return slop;
+	}
+	
+	/**
+	 * Seta a penetração tolerada, que não é corrigida para que os contatos em repouso não tremam.
+	 */
+	public void setSlop(double slop) {
+		this.slop = slop;
+	}
+	
+	/**
+	 * Retorna a velocidade de aproximação mínima para que haja ricochete.
+	 */
+	public double getRestitutionVelocity() {
+		return restitutionVelocity;
+	}
+	
+	/**
+	 * Seta a velocidade de aproximação mínima para que haja ricochete.
+	 */
+	public void setRestitutionVelocity(double restitutionVelocity) {
+		this.restitutionVelocity = restitutionVelocity;
+	}
+	
+	/**
+	 * Retorna se os impulsos do quadro anterior são reaplicados no início da resolução.
+	 */
+	public boolean isWarmStarting() {
+		return warmStarting;
+	}
+	
+	/**
+	 * Seta se os impulsos do quadro anterior são reaplicados no início da resolução.
+	 */
+	public void setWarmStarting(boolean warmStarting) {
+		this.warmStarting = warmStarting;
+	}
+	
+	/**
+	 * Retorna o número de contatos da última resolução.
+	 */
+	public int getContacts() {
+		return previousSize;
+	}
+}
@@ -0,0 +1,719 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+package easygame;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grade de navegação gerada a partir dos elementos estáticos de uma cena e da camada de blocos, usada para encontrar
+ * caminhos entre dois pontos pelo algoritmo A*. A grade só é atualizada quando algum elemento estático ou a camada
+ * de blocos muda, e apenas os elementos alterados são remarcados. Os caminhos encontrados ficam em cache até a grade
+ * mudar, e os pedidos de caminho são processados aos poucos, com um número máximo de células expandidas por quadro.
+ * @author Willians Magalhães Primo
+ */
+public class NavigationGrid {
+	
+	/**
+	 * Estado de um pedido de caminho.
+	 */
+	public enum Status{PENDING, FOUND, NOT_FOUND}
+	
+	/**
+	 * Pedido de caminho, processado aos poucos pela grade.
+	 * @author Willians Magalhães Primo
+	 */
+	public static class PathRequest {
+		private double startX, startY, goalX, goalY;
+		private Status status = Status.PENDING;
+		private boolean cancelled = false;
+		private List<Vector2D> path = new ArrayList<Vector2D>();
+		
+		private PathRequest(double startX, double startY, double goalX, double goalY){
+			this.startX = startX;
+			this.startY = startY;
+			this.goalX = goalX;
+			this.goalY = goalY;
+		}
+		
+		/**
+		 * Retorna o estado do pedido.
+		 */
+		public Status getStatus(){
+			return status;
+		}
+		
+		/**
+		 * Retorna se o pedido já foi processado.
+		 */
+		public boolean isDone(){
+			return status != Status.PENDING;
+		}
+		
+		/**
+		 * Retorna os pontos do caminho, sem o ponto de partida e terminando no destino.
+		 */
+		public List<Vector2D> getPath(){
+			return path;
+		}
+		
+		/**
+		 * Cancela o pedido, que deixa de ser processado.
+		 */
+		public void cancel(){
+			cancelled = true;
+		}
+	}
+	
+	/**
+	 * Células marcadas por um elemento estático e o estado do elemento quando foram marcadas.
+	 */
+	private static class Footprint {
+		private int[] cells = null;
+		private double x, y, rotation, width, height;
+		private double[] vertices = null;
+		private int bake = 0;
+	}
+	
+	//Deslocamentos das oito vizinhas de uma célula, as quatro primeiras são as ortogonais
+	private static final int[][] NEIGHBORS = {{1,0}, {-1,0}, {0,1}, {0,-1}, {1,1}, {1,-1}, {-1,1}, {-1,-1}};
+	private static final double DIAGONAL = Math.sqrt(2);
+	
+	private int columns = 0,
+				rows = 0,
+				searchBudget = 1000,
+				cacheSize = 256;
+	private double cellSize = 32.0f,
+				   originX = 0.0f,
+				   originY = 0.0f,
+				   clearance = 0.0f;
+	
+	//Número de elementos estáticos sobre cada célula e as células bloqueadas pela camada de blocos
+	private short[] blockers = new short[0];
+	private boolean[] tiles = new boolean[0];
+	private Map<PhysicElement, Footprint> footprints = new IdentityHashMap<PhysicElement, Footprint>();
+	private int[] stampCells = new int[64];
+	private TileLayer bakedLayer = null;
+	private int staticVersion = -1,
+				tileVersion = -1,
+				version = 0,
+				bakes = 0;
+	
+	//Caminhos já encontrados, como células, pela chave das células de partida e destino
+	private LinkedHashMap<Long, int[]> cache = new LinkedHashMap<Long, int[]>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+			return size() > cacheSize;
+		}
+	};
+	
+	//Pedidos aguardando e o pedido da busca em andamento
+	private ArrayDeque<PathRequest> requests = new ArrayDeque<PathRequest>();
+	private PathRequest current = null;
+	
+	//Estado da busca, as marcas evitam limpar os vetores a cada busca
+	private double[] costs = new double[0];
+	private int[] parents = new int[0],
+				  openStamps = new int[0],
+				  closedStamps = new int[0],
+				  heapNodes = new int[64];
+	private double[] heapKeys = new double[64];
+	private int heapSize = 0,
+				stamp = 0,
+				searchStart = -1,
+				searchGoal = -1,
+				searchVersion = -1;
+	private boolean searching = false;
+	private PathRequest searchRequest = null;
+	
+	//Construtores
+	public NavigationGrid(int columns, int rows, double cellSize){
+		this.columns = columns;
+		this.rows = rows;
+		this.cellSize = cellSize;
+		blockers = new short[columns*rows];
+		tiles = new boolean[columns*rows];
+		costs = new double[columns*rows];
+		parents = new int[columns*rows];
+		openStamps = new int[columns*rows];
+		closedStamps = new int[columns*rows];
+	}
+	
+	/**
+	 * Atualiza a grade, caso algum elemento estático ou a camada de blocos tenham mudado, e processa os pedidos
+	 * de caminho até o limite de células expandidas por quadro.
+	 */
+	public void update(Scene scene, TileLayer layer){
+		if(staticVersion != scene.getStaticModifications()){
+			staticVersion = scene.getStaticModifications();
+			bakeElements(scene.getPhysicElements());
+		}
+		if(layer != bakedLayer || (layer != null && layer.getModifications() != tileVersion)){
+			bakeTiles(layer);
+		}
+		process(searchBudget);
+	}
+	
+	/**
+	 * Remarca os elementos estáticos novos ou alterados e desmarca os que deixaram de ser estáticos ou foram removidos.
+	 */
+	private void bakeElements(List<GameElement> elements){
+		bakes++;
+		boolean changed = false;
+		
+		PhysicElement element = null;
+		for(int i = 0; i < elements.size(); i++){
+			element = (PhysicElement)elements.get(i);
+			if(!element.isStatic() || element.isDeleted() || !element.isColidable() || element.isSensor()){
+				continue;
+			}
+			
+			Footprint footprint = footprints.get(element);
+			if(footprint == null || footprint.x != element.getPosition().getX() || footprint.y != element.getPosition().getY()
+			   || footprint.rotation != element.getRotation() || footprint.width != element.getWidth() 
+			   || footprint.height != element.getHeight() || footprint.vertices != element.getVertices()){
+				if(footprint != null){
+					mark(footprint, -1);
+				}else{
+					footprint = new Footprint();
+					footprints.put(element, footprint);
+				}
+				stamp(element, footprint);
+				changed = true;
+			}
+			footprint.bake = bakes;
+		}
+		
+		Iterator<Footprint> iterator = footprints.values().iterator();
+		while(iterator.hasNext()){
+			Footprint footprint = iterator.next();
+			if(footprint.bake != bakes){
+				mark(footprint, -1);
+				iterator.remove();
+				changed = true;
+			}
+		}
+		
+		if(changed){
+			changed();
+		}
+	}
+	
+	/**
+	 * Marca as células cobertas por um elemento, guardando-as com o estado atual do elemento.
+	 */
+	private void stamp(PhysicElement element, Footprint footprint){
+		footprint.x = element.getPosition().getX();
+		footprint.y = element.getPosition().getY();
+		footprint.rotation = element.getRotation();
+		footprint.width = element.getWidth();
+		footprint.height = element.getHeight();
+		footprint.vertices = element.getVertices();
+		
+		double reach = element.getRadio() + clearance;
+		int firstColumn = Math.max(getColumn(footprint.x - reach), 0),
+			lastColumn = Math.min(getColumn(footprint.x + reach), columns - 1),
+			firstRow = Math.max(getRow(footprint.y - reach), 0),
+			lastRow = Math.min(getRow(footprint.y + reach), rows - 1);
+		
+		int size = 0;
+		for(int row = firstRow; row <= lastRow; row++){
+			for(int column = firstColumn; column <= lastColumn; column++){
+				if(covers(element, getCenterX(column), getCenterY(row))){
+					if(size == stampCells.length){
+						stampCells = Arrays.copyOf(stampCells, size*2);
+					}
+					stampCells[size++] = row*columns + column;
+				}
+			}
+		}
+		footprint.cells = Arrays.copyOf(stampCells, size);
+		mark(footprint, 1);
+	}
+	
+	/**
+	 * Soma um valor ao número de elementos sobre cada célula marcada por um elemento.
+	 */
+	private void mark(Footprint footprint, int value){
+		for(int i = 0; i < footprint.cells.length; i++){
+			blockers[footprint.cells[i]] += value;
+		}
+	}
+	
+	/**
+	 * Retorna se o ponto está a até clearance da forma do elemento. Polígonos e retângulos são afastados pelas arestas.
+	 */
+	private boolean covers(PhysicElement element, double x, double y){
+		if(element.isCompound()){
+			element.updateChildren();
+			for(int i = 0; i < element.getChildren().size(); i++){
+				if(element.getChildren().get(i).isColidable() && covers(element.getChildren().get(i), x, y)){
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		if(element.getShape() == PhysicSimulator.Shape.ELIPSE || element.getVertexCount() == 0){
+			x -= element.getPosition().getX();
+			y -= element.getPosition().getY();
+			return x*x + y*y <= (element.getRadio() + clearance)*(element.getRadio() + clearance);
+		}
+		for(int i = 0; i < element.getVertexCount(); i++){
+			if(element.getNormalX(i)*(x - element.getVertexX(i)) + element.getNormalY(i)*(y - element.getVertexY(i)) > clearance){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Recalcula as células bloqueadas pela camada de blocos.
+	 */
+	private void bakeTiles(TileLayer layer){
+		bakedLayer = layer;
+		tileVersion = layer != null ? layer.getModifications() : -1;
+		Arrays.fill(tiles, false);
+		
+		if(layer != null){
+			for(int row = 0; row < layer.getRows(); row++){
+				for(int column = 0; column < layer.getColumns(); column++){
+					if(!layer.isSolid(column, row)){
+						continue;
+					}
+					
+					//Células com o centro no bloco afastado por clearance
+					double left = layer.getColumnX(column) - clearance, 
+						   top = layer.getRowY(row) - clearance,
+						   right = left + layer.getTileSize() + 2*clearance,
+						   bottom = top + layer.getTileSize() + 2*clearance;
+					int firstColumn = Math.max((int)Math.ceil((left - originX)/cellSize - 0.5f), 0),
+						lastColumn = Math.min((int)Math.floor((right - originX)/cellSize - 0.5f), columns - 1),
+						firstRow = Math.max((int)Math.ceil((top - originY)/cellSize - 0.5f), 0),
+						lastRow = Math.min((int)Math.floor((bottom - originY)/cellSize - 0.5f), rows - 1);
+					for(int r = firstRow; r <= lastRow; r++){
+						for(int c = firstColumn; c <= lastColumn; c++){
+							tiles[r*columns + c] = true;
+						}
+					}
+				}
+			}
+		}
+		changed();
+	}
+	
+	/**
+	 * Registra uma mudança na grade, descartando os caminhos em cache.
+	 */
+	private void changed(){
+		version++;
+		cache.clear();
+	}
+	
+	/**
+	 * Força a remarcação de todos os elementos e da camada de blocos na próxima atualização.
+	 */
+	public void invalidate(){
+		Arrays.fill(blockers, (short)0);
+		footprints.clear();
+		staticVersion = -1;
+		bakedLayer = null;
+		tileVersion = -1;
+		changed();
+	}
+	
+	/**
+	 * Pede um caminho, que será procurado nas próximas atualizações da grade.
+	 */
+	public PathRequest requestPath(double startX, double startY, double goalX, double goalY){
+		PathRequest request = new PathRequest(startX, startY, goalX, goalY);
+		requests.add(request);
+		return request;
+	}
+	
+	/**
+	 * Procura um caminho imediatamente, sem limite de células expandidas, guardando os pontos na lista.
+	 * Retorna se o caminho foi encontrado. Uma busca em andamento é reiniciada na próxima atualização.
+	 */
+	public boolean findPath(double startX, double startY, double goalX, double goalY, List<Vector2D> path){
+		PathRequest request = new PathRequest(startX, startY, goalX, goalY);
+		request.path = path;
+		path.clear();
+		if(begin(request)){
+			expand(Integer.MAX_VALUE);
+		}
+		return request.status == Status.FOUND;
+	}
+	
+	/**
+	 * Processa os pedidos de caminho até expandir o número de células dado.
+	 */
+	private void process(int budget){
+		while(budget > 0){
+			if(current == null || current.cancelled){
+				current = requests.poll();
+				if(current == null){
+					return;
+				}
+				if(current.cancelled || !begin(current)){
+					current = null;
+					continue;
+				}
+			}else if(!searching || searchVersion != version){
+				//A grade mudou ou a busca foi usada por findPath, então o pedido é procurado de novo
+				if(!begin(current)){
+					current = null;
+					continue;
+				}
+			}
+			
+			budget = expand(budget);
+			if(!searching){
+				current = null;
+			}
+		}
+	}
+	
+	/**
+	 * Inicia a busca de um pedido. Retorna false caso o pedido tenha sido resolvido sem busca, pelo cache ou 
+	 * por estar fora da grade ou com o destino bloqueado.
+	 */
+	private boolean begin(PathRequest request){
+		int startColumn = getColumn(request.startX), startRow = getRow(request.startY),
+			goalColumn = getColumn(request.goalX), goalRow = getRow(request.goalY);
+		if(!contains(startColumn, startRow) || isBlocked(goalColumn, goalRow)){
+			request.status = Status.NOT_FOUND;
+			return false;
+		}
+		
+		int start = startRow*columns + startColumn, goal = goalRow*columns + goalColumn;
+		int[] cells = cache.get(getKey(start, goal));
+		if(cells != null){
+			finish(request, cells);
+			return false;
+		}
+		
+		searchStart = start;
+		searchGoal = goal;
+		stamp++;
+		if(stamp == Integer.MAX_VALUE){
+			Arrays.fill(openStamps, 0);
+			Arrays.fill(closedStamps, 0);
+			stamp = 1;
+		}
+		heapSize = 0;
+		searchVersion = version;
+		searching = true;
+		searchRequest = request;
+		costs[searchStart] = 0.0f;
+		parents[searchStart] = -1;
+		openStamps[searchStart] = stamp;
+		push(searchStart, heuristic(searchStart));
+		return true;
+	}
+	
+	/**
+	 * Expande até o número de células dado, retornando quantas ainda podem ser expandidas. 
+	 * Ao terminar, encontrando ou não o caminho, a busca deixa de estar em andamento.
+	 */
+	private int expand(int budget){
+		while(heapSize > 0 && budget > 0){
+			int node = pop();
+			if(closedStamps[node] == stamp){
+				continue;
+			}
+			closedStamps[node] = stamp;
+			budget--;
+			
+			if(node == searchGoal){
+				int[] cells = buildPath(node);
+				cache.put(getKey(searchStart, searchGoal), cells);
+				finish(searchRequest, cells);
+				searching = false;
+				return budget;
+			}
+			
+			int column = node%columns, row = node/columns;
+			for(int i = 0; i < NEIGHBORS.length; i++){
+				int neighborColumn = column + NEIGHBORS[i][0], neighborRow = row + NEIGHBORS[i][1];
+				if(isBlocked(neighborColumn, neighborRow)){
+					continue;
+				}
+				//As diagonais não cortam os cantos de células bloqueadas
+				if(i >= 4 && (isBlocked(neighborColumn, row) || isBlocked(column, neighborRow))){
+					continue;
+				}
+				
+				int neighbor = neighborRow*columns + neighborColumn;
+				double cost = costs[node] + (i >= 4 ? DIAGONAL : 1.0f);
+				if(closedStamps[neighbor] != stamp && (openStamps[neighbor] != stamp || cost < costs[neighbor])){
+					openStamps[neighbor] = stamp;
+					costs[neighbor] = cost;
+					parents[neighbor] = node;
+					push(neighbor, cost + heuristic(neighbor));
+				}
+			}
+		}
+		
+		if(heapSize == 0){
+			searchRequest.status = Status.NOT_FOUND;
+			searching = false;
+		}
+		return budget;
+	}
+	
+	/**
+	 * Retorna as células do caminho da partida até a célula dada, mantendo apenas as que mudam a direção.
+	 */
+	private int[] buildPath(int node){
+		int size = 0;
+		for(int cell = node; cell != -1; cell = parents[cell]){
+			if(size == stampCells.length){
+				stampCells = Arrays.copyOf(stampCells, size*2);
+			}
+			stampCells[size++] = cell;
+		}
+		
+		int[] cells = new int[size];
+		int count = 0;
+		for(int i = size - 1; i >= 0; i--){
+			//A célula do meio de três alinhadas é descartada
+			if(count >= 2 && stampCells[i] - stampCells[i + 1] == stampCells[i + 1] - stampCells[i + 2]){
+				cells[count - 1] = stampCells[i];
+			}else{
+				cells[count++] = stampCells[i];
+			}
+		}
+		return Arrays.copyOf(cells, count);
+	}
+	
+	/**
+	 * Preenche o caminho de um pedido com os centros das células, sem a célula de partida e terminando no destino.
+	 */
+	private void finish(PathRequest request, int[] cells){
+		request.path.clear();
+		for(int i = 1; i < cells.length - 1; i++){
+			request.path.add(new Vector2D(getCenterX(cells[i]%columns), getCenterY(cells[i]/columns)));
+		}
+		request.path.add(new Vector2D(request.goalX, request.goalY));
+		request.status = Status.FOUND;
+	}
+	
+	/**
+	 * Retorna a distância estimada de uma célula ao destino, em movimentos ortogonais e diagonais.
+	 */
+	private double heuristic(int node){
+		int dx = Math.abs(node%columns - searchGoal%columns), dy = Math.abs(node/columns - searchGoal/columns);
+		return Math.max(dx, dy) + (DIAGONAL - 1)*Math.min(dx, dy);
+	}
+	
+	/**
+	 * Adiciona uma célula ao heap binário da busca.
+	 */
+	private void push(int node, double key){
+		if(heapSize == heapNodes.length){
+			heapNodes = Arrays.copyOf(heapNodes, heapSize*2);
+			heapKeys = Arrays.copyOf(heapKeys, heapSize*2);
+		}
+		int i = heapSize++;
+		while(i > 0 && heapKeys[(i - 1)/2] > key){
+			heapNodes[i] = heapNodes[(i - 1)/2];
+			heapKeys[i] = heapKeys[(i - 1)/2];
+			i = (i - 1)/2;
+		}
+		heapNodes[i] = node;
+		heapKeys[i] = key;
+	}
+	
+	/**
+	 * Remove e retorna a célula de menor custo do heap binário da busca.
+	 */
+	private int pop(){
+		int node = heapNodes[0];
+		int last = heapNodes[--heapSize];
+		double key = heapKeys[heapSize];
+		int i = 0;
+		while(i*2 + 1 < heapSize){
+			int child = i*2 + 1;
+			if(child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]){
+				child++;
+			}
+			if(heapKeys[child] >= key){
+				break;
+			}
+			heapNodes[i] = heapNodes[child];
+			heapKeys[i] = heapKeys[child];
+			i = child;
+		}
+		heapNodes[i] = last;
+		heapKeys[i] = key;
+		return node;
+	}
+	
+	/**
+	 * Retorna a chave de um caminho no cache.
+	 */
+	private long getKey(int start, int goal){
+		return ((long)start << 32) | (goal & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * Retorna se a célula está na grade.
+	 */
+	public boolean contains(int column, int row){
+		return column >= 0 && row >= 0 && column < columns && row < rows;
+	}
+	
+	/**
+	 * Retorna se a célula está bloqueada por um elemento estático ou pela camada de blocos. Células fora da grade são bloqueadas.
+	 */
+	public boolean isBlocked(int column, int row){
+		if(!contains(column, row)){
+			return true;
+		}
+		return blockers[row*columns + column] > 0 || tiles[row*columns + column];
+	}
+	
+	/**
+	 * Retorna a coluna que contém a coordenada x.
+	 */
+	public int getColumn(double x){
+		return (int)Math.floor((x - originX)/cellSize);
+	}
+	
+	/**
+	 * Retorna a linha que contém a coordenada y.
+	 */
+	public int getRow(double y){
+		return (int)Math.floor((y - originY)/cellSize);
+	}
+	
+	/**
+	 * Retorna a coordenada x do centro de uma coluna.
+	 */
+	public double getCenterX(int column){
+		return originX + (column + 0.5f)*cellSize;
+	}
+	
+	/**
+	 * Retorna a coordenada y do centro de uma linha.
+	 */
+	public double getCenterY(int row){
+		return originY + (row + 0.5f)*cellSize;
+	}
+	
+	/**
+	 * Retorna a versão da grade, incrementada a cada mudança nas células bloqueadas.
+	 */
+	public int getVersion(){
+		return version;
+	}
+	
+	/**
+	 * Retorna o número de pedidos de caminho aguardando, incluindo o da busca em andamento.
+	 */
+	public int getPendingRequests(){
+		return requests.size() + (current != null ? 1 : 0);
+	}
+	
+	/**
+	 * Retorna o número de colunas.
+	 */
+	public int getColumns(){
+		return columns;
+	}
+	
+	/**
+	 * Retorna o número de linhas.
+	 */
+	public int getRows(){
+		return rows;
+	}
+	
+	/**
+	 * Retorna o tamanho de cada célula.
+	 */
+	public double getCellSize(){
+		return cellSize;
+	}
+	
+	/**
+	 * Seta o canto superior esquerdo da grade.
+	 */
+	public void setOrigin(double originX, double originY){
+		this.originX = originX;
+		this.originY = originY;
+		invalidate();
+	}
+	
+	/**
+	 * Retorna a distância mínima mantida dos elementos estáticos e dos blocos, normalmente o raio dos agentes.
+	 */
+	public double getClearance(){
+		return clearance;
+	}
+	
+	/**
+	 * Seta a distância mínima mantida dos elementos estáticos e dos blocos.
+	 */
+	public void setClearance(double clearance){
+		this.clearance = clearance;
+		invalidate();
+	}
+	
+	/**
+	 * Retorna o número máximo de células expandidas por atualização.
+	 */
+	public int getSearchBudget(){
+		return searchBudget;
+	}
+	
+	/**
+	 * Seta o número máximo de células expandidas por atualização. Pedidos que não terminam em uma atualização
+	 * continuam nas seguintes, evitando picos no tempo do quadro.
+	 */
+	public void setSearchBudget(int searchBudget){
+		this.searchBudget = searchBudget;
+	}
+	
+	/**
+	 * Retorna o número máximo de caminhos em cache.
+	 */
+	public int getCacheSize(){
+		return cacheSize;
+	}
+	
+	/**
+	 * Seta o número máximo de caminhos em cache. Os caminhos menos usados são descartados primeiro.
+	 */
+	public void setCacheSize(int cacheSize){
+		this.cacheSize = cacheSize;
+	}
+}
@@ -22,6 +22,9 @@ SOFTWARE. */
 
 package easygame;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import easygame.PhysicSimulator.Shape;
 
 import android.annotation.SuppressLint;
@@ -58,7 +61,61 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 			        estatic = false,
 			        rigidBody = true,
 			        fixed = false,
-			        imageTouchable = true;
+			        imageTouchable = true,
+			        sleeping = false,
+			        sleepable = true,
+			        bullet = false,
+			        sensor = false;
+	
+	//Filtro de colisões, dois elementos só colidem se a categoria de cada um estiver na máscara do outro
+	private int colisionCategory = 1,
+				colisionMask = 0xFFFFFFFF;
+	
+	//Base da rotação e cantos do retângulo, recalculados apenas quando a rotação ou as dimensões mudam
+	private static final int[][] CORNERS = {{-1,-1}, {-1,1}, {1,1}, {1,-1}};
+	private double basisRotation = Double.NaN,
+				   basisWidth = 0.0f,
+				   basisHeight = 0.0f,
+				   rotationCos = 1.0f,
+				   rotationSin = 0.0f;
+	private double[] corners = new double[8];
+	
+	//Polígono convexo do elemento em relação ao centro, com as normais das arestas, e os mesmos no mundo,
+	//recalculados apenas quando a posição ou a rotação mudam
+	private static final int[][] RECTANGLE_NORMALS = {{-1,0}, {0,1}, {1,0}, {0,-1}};
+	private double[] vertices = new double[0],
+					 normals = new double[0],
+					 worldVertices = new double[0],
+					 worldNormals = new double[0];
+	private double area = 0.0f,
+				   verticesX = Double.NaN,
+				   verticesY = Double.NaN,
+				   verticesRotation = Double.NaN;
+	
+	//Estado da simulação anterior, usado para interpolar o desenho entre duas simulações
+	private Vector2D previousPosition = null;
+	private double previousRotation = 0.0f;
+	
+	//Número de simulações consecutivas em que o elemento ficou abaixo dos limites de repouso
+	private int sleepTime = 0;
+	
+	//Nó do elemento nas ilhas de contato da simulação paralela, -1 fora da montagem das ilhas
+	private int island = -1;
+	
+	//Posição do intervalo do elemento no último SweepAndPruneBroadPhase que o atualizou, -1 se nenhum
+	private int broadPhaseProxy = -1;
+	
+	//Formas filhas de um elemento composto e, em uma forma filha, o dono com a posição e a rotação em relação a ele.
+	//A posição dos filhos no mundo é recalculada apenas quando a posição ou a rotação do dono mudam, ou quando
+	//um filho desloca o dono
+	private List<PhysicElement> children = new ArrayList<PhysicElement>();
+	private PhysicElement owner = null;
+	private double offsetX = 0.0f,
+				   offsetY = 0.0f,
+				   offsetRotation = 0.0f,
+				   childrenX = Double.NaN,
+				   childrenY = Double.NaN,
+				   childrenRotation = Double.NaN;
 	
 	private TouchListener touchListener = null;
 	
@@ -139,6 +196,11 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 */
 	public  void addToPositionX(double x){
 		this.position.addTo(x, 0);
+		staticChanged();
+		if(owner != null){
+			owner.addToPositionX(x);
+			owner.childrenX = Double.NaN;
+		}
 	}
 	
 	/**
@@ -146,6 +208,11 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 */
 	public  void addToPositionY(double y){
 		this.position.addTo(0, y);
+		staticChanged();
+		if(owner != null){
+			owner.addToPositionY(y);
+			owner.childrenX = Double.NaN;
+		}
 	}
 	
 	/**
@@ -153,6 +220,11 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 */
 	public  void addToPosition(Vector2D velocity){
 		this.position.addTo(velocity);
+		staticChanged();
+		if(owner != null){
+			owner.addToPosition(velocity);
+			owner.childrenX = Double.NaN;
+		}
 	}
 	
 	/**
@@ -160,6 +232,11 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 */
 	public  void addToPosition(double x, double y){
 		this.position.addTo(x,y);
+		staticChanged();
+		if(owner != null){
+			owner.addToPosition(x, y);
+			owner.childrenX = Double.NaN;
+		}
 	}
 	
 	/**
@@ -167,6 +244,8 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 */
 	public  void setPosition(double x, double y){
 		this.position.set(x, y);
+		staticChanged();
+		wakeUp();
 	}
 	
 	/**
@@ -182,20 +261,79 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 */
 	public  void setPosition(Vector2D position){
 		this.position = position;
+		staticChanged();
+		wakeUp();
 	}
 	
 	/**
 	 * Muda algumas propriedades do elemento com base na mudança de outras
 	 */
 	private  void change(){		
-		if(shape == Shape.ELIPSE){
+		if(isCompound()){
+			//A forma do próprio elemento composto é ignorada, o raio envolve os filhos e o peso é a soma dos deles
+			double radio = 0.0f, weight = 0.0f;
+			for(int i = 0; i < children.size(); i++){
+				PhysicElement child = children.get(i);
+				radio = Math.max(radio, Math.sqrt(child.offsetX*child.offsetX + child.offsetY*child.offsetY) + child.getRadio());
+				weight += child.weight;
+			}
+			setRadio(radio);
+			setWeight(weight);
+		}else if(shape == Shape.ELIPSE){
 			setRadio(Math.max(width, height)/2.0f);
-			setWeight((int)((Math.pow(radio,2)*Math.PI)*getDensit()));
+			setWeight((int)((GameMath.pow(radio,2)*Math.PI)*getDensit()));
 		}else if(getShape() == Shape.RECTANGLE){
 			setRadio(Math.sqrt((width/2.0f)*(width/2.0f) + (height/2.0f)*(height/2.0f)));
 			setWeight((int)(width*height*getDensit()));
+		}else if(getShape() == Shape.POLYGON){
+			double radio = 0.0f;
+			for(int i = 0; i < vertices.length; i += 2){
+				radio = Math.max(radio, Math.sqrt(vertices[i]*vertices[i] + vertices[i + 1]*vertices[i + 1]));
+			}
+			setRadio(radio);
+			setWeight((int)(area*getDensit()));
+		}
+		if(owner != null){
+			owner.change();
+		}
+		staticChanged();
+	}
+	
+	/**
+	 * Registra a alteração de um elemento estático para que os índices de elementos estáticos sejam reconstruídos.
+	 * Deve ser chamado caso a posição de um elemento estático seja alterada diretamente pelo vetor de getPosition().
+	 */
+	public void staticChanged(){
+		if(estatic){
+			if(getScene() != null){
+				getScene().staticChanged();
+			}
+			supportChanged();
 		}
 	}
+	
+	/**
+	 * Registra na cena a região ocupada pelo elemento como uma mudança de apoio, cobrindo também a posição
+	 * da simulação anterior caso o elemento tenha sido movido desde então.
+	 */
+	private void supportChanged(){
+		if(getScene() == null){
+			return;
+		}
+		
+		double x = position.getX(),
+			   y = position.getY(),
+			   radio = getRadio();
+		if(previousPosition != null){
+			double distanceX = (previousPosition.getX() - x)/2,
+				   distanceY = (previousPosition.getY() - y)/2;
+			x += distanceX;
+			y += distanceY;
+			radio += Math.sqrt(distanceX*distanceX + distanceY*distanceY);
+		}
+		
+		getScene().supportChanged(x, y, radio);
+	}
 
 	/**
 	 * Retorna se o elemento é vsível ou não.
@@ -228,6 +366,67 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 */
 	public  void setColidable(boolean colidable) {
 		this.colidable = colidable;
+		staticChanged();
+	}
+
+	/**
+	 * Retorna os bits de categoria do elemento no filtro de colisões.
+	 */
+	public  int getColisionCategory() {
+		return colisionCategory;
+	}
+
+	/**
+	 * Seta os bits de categoria do elemento no filtro de colisões.
+	 */
+	public  void setColisionCategory(int colisionCategory) {
+		this.colisionCategory = colisionCategory;
+	}
+
+	/**
+	 * Retorna a máscara com as categorias com as quais o elemento colide.
+	 */
+	public  int getColisionMask() {
+		return colisionMask;
+	}
+
+	/**
+	 * Seta a máscara com as categorias com as quais o elemento colide.
+	 */
+	public  void setColisionMask(int colisionMask) {
+		this.colisionMask = colisionMask;
+	}
+	
+	/**
+	 * Retorna se o filtro de colisões permite que o elemento colida com outro.
+	 */
+	public  boolean canColideWith(PhysicElement other) {
+		return (colisionCategory & other.colisionMask) != 0 && (other.colisionCategory & colisionMask) != 0;
+	}
+
+	/**
+	 * Guarda a posição e a rotação atuais como o estado da simulação anterior.
+	 */
+	public  void savePreviousState() {
+		if(previousPosition == null){
+			previousPosition = new Vector2D();
+		}
+		previousPosition.set(position);
+		previousRotation = rotation;
+	}
+	
+	/**
+	 * Retorna a posição do elemento antes da última simulação, ou null caso ainda não tenha sido simulado.
+	 */
+	public  Vector2D getPreviousPosition() {
+		return previousPosition;
+	}
+	
+	/**
+	 * Retorna a rotação do elemento em radianos antes da última simulação.
+	 */
+	public  double getPreviousRotation() {
+		return previousRotation;
 	}
 
 	/**
@@ -237,11 +436,259 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 		return rotation;
 	}
 	
+	/**
+	 * Retorna o cosseno da rotação do elemento.
+	 */
+	public  double getRotationCos() {
+		updateBasis();
+		return rotationCos;
+	}
+	
+	/**
+	 * Retorna o seno da rotação do elemento.
+	 */
+	public  double getRotationSin() {
+		updateBasis();
+		return rotationSin;
+	}
+	
+	/**
+	 * Retorna a coordenada x de um dos quatro cantos do retângulo do elemento, já rotacionado, em relação ao centro.
+	 */
+	public  double getCornerX(int corner) {
+		updateBasis();
+		return corners[corner*2];
+	}
+	
+	/**
+	 * Retorna a coordenada y de um dos quatro cantos do retângulo do elemento, já rotacionado, em relação ao centro.
+	 */
+	public  double getCornerY(int corner) {
+		updateBasis();
+		return corners[corner*2 + 1];
+	}
+	
+	/**
+	 * Recalcula a base da rotação e os cantos caso a rotação ou as dimensões tenham mudado.
+	 */
+	private  void updateBasis() {
+		if(rotation == basisRotation && width == basisWidth && height == basisHeight){
+			return;
+		}
+		basisRotation = rotation;
+		basisWidth = width;
+		basisHeight = height;
+		rotationCos = GameMath.cos(rotation);
+		rotationSin = GameMath.sin(rotation);
+		for(int i = 0; i < CORNERS.length; i++){
+			double x = CORNERS[i][0]*width/2, y = CORNERS[i][1]*height/2;
+			corners[i*2] = x*rotationCos - y*rotationSin;
+			corners[i*2 + 1] = x*rotationSin + y*rotationCos;
+		}
+	}
+	
+	/**
+	 * Retorna os vértices do polígono do elemento em relação ao centro, intercalando x e y.
+	 */
+	public  double[] getVertices() {
+		return vertices;
+	}
+	
+	/**
+	 * Seta os vértices do polígono convexo do elemento, em relação ao centro e intercalando x e y, em qualquer sentido.
+	 * Usados quando o formato é POLYGON, as normais das arestas são calculadas aqui uma única vez.
+	 */
+	public  void setVertices(double... vertices) {
+		int count = vertices.length/2;
+		this.vertices = new double[count*2];
+		this.normals = new double[count*2];
+		this.worldVertices = new double[count*2];
+		this.worldNormals = new double[count*2];
+		
+		//Área com sinal, negativa quando os vértices estão no sentido contrário ao usado nas normais
+		area = 0.0f;
+		for(int i = 0; i < count; i++){
+			int next = (i + 1)%count;
+			area += vertices[i*2]*vertices[next*2 + 1] - vertices[next*2]*vertices[i*2 + 1];
+		}
+		area /= 2;
+		for(int i = 0; i < count; i++){
+			int source = area < 0 ? count - 1 - i : i;
+			this.vertices[i*2] = vertices[source*2];
+			this.vertices[i*2 + 1] = vertices[source*2 + 1];
+		}
+		area = Math.abs(area);
+		
+		for(int i = 0; i < count; i++){
+			int next = (i + 1)%count;
+			double x = this.vertices[next*2 + 1] - this.vertices[i*2 + 1],
+				   y = this.vertices[i*2] - this.vertices[next*2],
+				   module = Math.sqrt(x*x + y*y);
+			this.normals[i*2] = module > 0 ? x/module : 0.0f;
+			this.normals[i*2 + 1] = module > 0 ? y/module : 0.0f;
+		}
+		verticesX = Double.NaN;
+		change();
+	}
+	
+	/**
+	 * Retorna o número de vértices usados na colisão: os do polígono, quatro no retângulo e nenhum na elipse.
+	 */
+	public  int getVertexCount() {
+		if(shape == Shape.POLYGON){
+			return vertices.length/2;
+		}else if(shape == Shape.RECTANGLE){
+			return 4;
+		}
+		return 0;
+	}
+	
+	/**
+	 * Retorna a coordenada x de um vértice no mundo. Os vértices do retângulo são os seus cantos.
+	 */
+	public  double getVertexX(int vertex) {
+		if(shape == Shape.RECTANGLE){
+			return position.getX() + getCornerX(vertex);
+		}
+		updateVertices();
+		return worldVertices[vertex*2];
+	}
+	
+	/**
+	 * Retorna a coordenada y de um vértice no mundo. Os vértices do retângulo são os seus cantos.
+	 */
+	public  double getVertexY(int vertex) {
+		if(shape == Shape.RECTANGLE){
+			return position.getY() + getCornerY(vertex);
+		}
+		updateVertices();
+		return worldVertices[vertex*2 + 1];
+	}
+	
+	/**
+	 * Retorna a coordenada x da normal, no mundo, da aresta que vai de um vértice ao seguinte.
+	 */
+	public  double getNormalX(int vertex) {
+		if(shape == Shape.RECTANGLE){
+			return RECTANGLE_NORMALS[vertex][0]*getRotationCos() - RECTANGLE_NORMALS[vertex][1]*getRotationSin();
+		}
+		updateVertices();
+		return worldNormals[vertex*2];
+	}
+	
+	/**
+	 * Retorna a coordenada y da normal, no mundo, da aresta que vai de um vértice ao seguinte.
+	 */
+	public  double getNormalY(int vertex) {
+		if(shape == Shape.RECTANGLE){
+			return RECTANGLE_NORMALS[vertex][0]*getRotationSin() + RECTANGLE_NORMALS[vertex][1]*getRotationCos();
+		}
+		updateVertices();
+		return worldNormals[vertex*2 + 1];
+	}
+	
+	/**
+	 * Recalcula os vértices e as normais do polígono no mundo caso a posição ou a rotação tenham mudado.
+	 */
+	private  void updateVertices() {
+		if(position.getX() == verticesX && position.getY() == verticesY && rotation == verticesRotation){
+			return;
+		}
+		verticesX = position.getX();
+		verticesY = position.getY();
+		verticesRotation = rotation;
+		double cos = getRotationCos(), sin = getRotationSin();
+		for(int i = 0; i < vertices.length; i += 2){
+			worldVertices[i] = verticesX + vertices[i]*cos - vertices[i + 1]*sin;
+			worldVertices[i + 1] = verticesY + vertices[i]*sin + vertices[i + 1]*cos;
+			worldNormals[i] = normals[i]*cos - normals[i + 1]*sin;
+			worldNormals[i + 1] = normals[i]*sin + normals[i + 1]*cos;
+		}
+	}
+	
+	/**
+	 * Adiciona uma forma filha ao elemento, tornando-o composto. A posição e a rotação atuais do filho passam a ser
+	 * relativas ao elemento, que o move junto consigo, e ele passa a usar a velocidade, o peso e o estado do elemento.
+	 * O filho não deve ser adicionado à cena.
+	 */
+	public  void addChild(PhysicElement child) {
+		child.owner = this;
+		child.offsetX = child.position.getX();
+		child.offsetY = child.position.getY();
+		child.offsetRotation = child.rotation;
+		children.add(child);
+		childrenX = Double.NaN;
+		change();
+	}
+	
+	/**
+	 * Remove uma forma filha do elemento.
+	 */
+	public  void removeChild(PhysicElement child) {
+		if(children.remove(child)){
+			child.owner = null;
+			change();
+		}
+	}
+	
+	/**
+	 * Retorna as formas filhas do elemento.
+	 */
+	public  List<PhysicElement> getChildren() {
+		return children;
+	}
+	
+	/**
+	 * Retorna se o elemento é composto, ou seja, se colide pelas formas filhas em vez da sua própria forma.
+	 */
+	public  boolean isCompound() {
+		return children.size() > 0;
+	}
+	
+	/**
+	 * Retorna o elemento composto ao qual a forma pertence, ou null caso não seja uma forma filha.
+	 */
+	public  PhysicElement getOwner() {
+		return owner;
+	}
+	
+	/**
+	 * Retorna a posição x da forma filha em relação ao dono.
+	 */
+	public  double getOffsetX() {
+		return offsetX;
+	}
+	
+	/**
+	 * Retorna a posição y da forma filha em relação ao dono.
+	 */
+	public  double getOffsetY() {
+		return offsetY;
+	}
+	
+	/**
+	 * Recalcula a posição e a rotação dos filhos no mundo caso a posição ou a rotação do elemento tenham mudado.
+	 */
+	public  void updateChildren() {
+		if(children.size() == 0 || (position.getX() == childrenX && position.getY() == childrenY && rotation == childrenRotation)){
+			return;
+		}
+		childrenX = position.getX();
+		childrenY = position.getY();
+		childrenRotation = rotation;
+		double cos = getRotationCos(), sin = getRotationSin();
+		for(int i = 0; i < children.size(); i++){
+			PhysicElement child = children.get(i);
+			child.position.set(childrenX + child.offsetX*cos - child.offsetY*sin, childrenY + child.offsetX*sin + child.offsetY*cos);
+			child.rotation = rotation + child.offsetRotation;
+		}
+	}
+	
 	/**
 	 * Seta a rotação do elemento em graus celcios.
 	 */
 	public  void setRotationInDegree(double rotation) {
-		this.setRotationInRadians(Math.toRadians(rotation));
+		this.setRotationInRadians(GameMath.toRadians(rotation));
 	}
 	
 	/**
@@ -254,12 +701,16 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 		}else if(this.rotation < -2*Math.PI){
 			this.rotation = this.rotation + 2*Math.PI;
 		}
+		staticChanged();
 	}
 
 	/**
 	 * Retorna o peso do elemento.
 	 */
 	public  double getWeight() {
+		if(owner != null){
+			return owner.getWeight();
+		}
 		return weight;
 	}
 
@@ -303,6 +754,7 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	
 	/**
 	 * Método de tratamento de colisão do elemento.
+	 * O ponto de colisão é reaproveitado pelo simulador, caso seja necessário guardá-lo deve ser feita uma cópia.
 	 */
 	public  void colide(PhysicElement other, Vector2D colisionPoint){
 		this.onColide(other, colisionPoint);
@@ -313,6 +765,45 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 */
 	protected void onColide(PhysicElement other, Vector2D colisionPoint){}
 	
+	/**
+	 * Método chamado quando o elemento passa a tocar outro, antes da primeira chamada de colide para o par.
+	 * Só é chamado com a fila de eventos do simulador ativa.
+	 */
+	public  void colisionBegin(PhysicElement other, Vector2D colisionPoint){
+		this.onColisionBegin(other, colisionPoint);
+	}
+	
+	/**
+	 * Método que deve ser sobreescrito caso o usuário deseje tratar o início de um contato.
+	 */
+	protected void onColisionBegin(PhysicElement other, Vector2D colisionPoint){}
+	
+	/**
+	 * Método chamado quando o elemento deixa de tocar outro.
+	 * Só é chamado com a fila de eventos do simulador ativa.
+	 */
+	public  void colisionEnd(PhysicElement other){
+		this.onColisionEnd(other);
+	}
+	
+	/**
+	 * Método que deve ser sobreescrito caso o usuário deseje tratar o fim de um contato.
+	 */
+	protected void onColisionEnd(PhysicElement other){}
+	
+	/**
+	 * Método chamado quando o elemento colide com uma célula sólida da camada de blocos do simulador.
+	 * As colisões com a camada são informadas depois da resolução, uma vez por subpasso.
+	 */
+	public  void tileColide(TileLayer layer, int column, int row){
+		this.onTileColide(layer, column, row);
+	}
+	
+	/**
+	 * Método que deve ser sobreescrito caso o usuário deseje tratar as colisões com a camada de blocos.
+	 */
+	protected void onTileColide(TileLayer layer, int column, int row){}
+	
 	/**
 	 * Método de desenho do elemento.
 	 */
@@ -379,9 +870,12 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	}
 
 	/**
-	 * Retorna a atual aceleração do elemento.
+	 * Retorna a atual aceleração do elemento. Uma forma filha compartilha a velocidade do dono.
 	 */
 	public  Vector2D getVelocity() {
+		if(owner != null){
+			return owner.getVelocity();
+		}
 		return velocity;
 	}
 
@@ -390,6 +884,7 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 */
 	public  void setVelocity(Vector2D velocity) {
 		this.velocity.set(velocity);
+		wakeUp();
 	}
 	
 	/**
@@ -397,6 +892,7 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 */
 	public  void setVelocity(double x, double y) {
 		this.velocity.set(x,y);
+		wakeUp();
 	}
 
 	/**
@@ -450,6 +946,9 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 * Retorna se o objeto é estático, ou seja, o corpo deve ficar parado na tela.
 	 */
 	public  boolean isStatic() {
+		if(owner != null){
+			return owner.isStatic();
+		}
 		return estatic;
 	}
 
@@ -457,9 +956,146 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 * Seta o objeto como estático, ou seja, o corpo deve ficar parado na tela.
 	 */
 	public  void setStatic(boolean estatic) {
+		if(this.estatic != estatic){
+			if(getScene() != null){
+				getScene().staticChanged();
+			}
+			supportChanged();
+		}
 		this.estatic = estatic;
 	}
 
+	/**
+	 * Retorna se o elemento está sendo integrado pelo simulador, ou seja, não é estático nem está em repouso.
+	 */
+	public  boolean isActive() {
+		if(owner != null){
+			return owner.isActive();
+		}
+		return !estatic && !sleeping;
+	}
+	
+	/**
+	 * Retorna se o elemento está em repouso, ou seja, fora da integração e da detecção de colisões até ser acordado.
+	 */
+	public  boolean isSleeping() {
+		if(owner != null){
+			return owner.isSleeping();
+		}
+		return sleeping;
+	}
+	
+	/**
+	 * Coloca o elemento em repouso, zerando suas velocidades.
+	 */
+	public  void sleep() {
+		this.sleeping = true;
+		this.velocity.set(0.0f, 0.0f);
+		this.rotationVelocity = 0.0f;
+	}
+	
+	/**
+	 * Acorda o elemento, retornando-o para a simulação.
+	 */
+	public  void wakeUp() {
+		this.sleeping = false;
+		this.sleepTime = 0;
+		if(owner != null){
+			owner.wakeUp();
+		}
+	}
+	
+	/**
+	 * Retorna se o elemento é um projétil, que tem o movimento varrido para não atravessar outros elementos.
+	 */
+	public  boolean isBullet() {
+		return bullet;
+	}
+	
+	/**
+	 * Seta se o elemento é um projétil. O movimento dos projéteis é testado contra os outros elementos a cada
+	 * simulação e interrompido no instante do impacto, evitando que atravessem paredes finas em alta velocidade.
+	 */
+	public  void setBullet(boolean bullet) {
+		this.bullet = bullet;
+	}
+	
+	/**
+	 * Retorna se o elemento é um sensor, que apenas detecta a sobreposição com outros elementos.
+	 */
+	public  boolean isSensor() {
+		return sensor;
+	}
+	
+	/**
+	 * Seta se o elemento é um sensor. Os pares com um sensor apenas verificam a sobreposição e informam a colisão,
+	 * sem separar os elementos nem alterar as velocidades. Com a fila de eventos, onColisionBegin e onColisionEnd
+	 * marcam a entrada e a saída do sensor. Sensores não colidem entre si nem interrompem projéteis.
+	 */
+	public  void setSensor(boolean sensor) {
+		this.sensor = sensor;
+	}
+	
+	/**
+	 * Retorna se o elemento pode entrar em repouso.
+	 */
+	public  boolean isSleepable() {
+		return sleepable;
+	}
+	
+	/**
+	 * Seta se o elemento pode entrar em repouso.
+	 */
+	public  void setSleepable(boolean sleepable) {
+		this.sleepable = sleepable;
+		if(!sleepable){
+			wakeUp();
+		}
+	}
+	
+	/**
+	 * Retorna o número de simulações consecutivas em que o elemento ficou abaixo dos limites de repouso.
+	 */
+	public  int getSleepTime() {
+		return sleepTime;
+	}
+	
+	/**
+	 * Seta o número de simulações consecutivas em que o elemento ficou abaixo dos limites de repouso.
+	 */
+	public  void setSleepTime(int sleepTime) {
+		this.sleepTime = sleepTime;
+	}
+
+	/**
+	 * Retorna o nó do elemento nas ilhas de contato que estão sendo montadas pelo PhysicSimulator, ou -1.
+	 */
+	public  int getIsland() {
+		return island;
+	}
+
+	/**
+	 * Seta o nó do elemento nas ilhas de contato. Usado pelo PhysicSimulator durante a montagem das ilhas.
+	 */
+	public  void setIsland(int island) {
+		this.island = island;
+	}
+
+	/**
+	 * Retorna a posição do intervalo do elemento no último SweepAndPruneBroadPhase que o atualizou, ou -1.
+	 */
+	public  int getBroadPhaseProxy() {
+		return broadPhaseProxy;
+	}
+
+	/**
+	 * Seta a posição do intervalo do elemento na fase ampla. Usado pelo SweepAndPruneBroadPhase para encontrar
+	 * o intervalo sem procurar o elemento.
+	 */
+	public  void setBroadPhaseProxy(int broadPhaseProxy) {
+		this.broadPhaseProxy = broadPhaseProxy;
+	}
+
 	/**
 	 * Retorna a elasticidade de colisão do corpo do elemento.
 	 */
@@ -478,6 +1114,9 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 * etorna se o corpo é simulável fisicamente.
 	 */
 	public  boolean isRigidBody() {
+		if(owner != null){
+			return owner.isRigidBody();
+		}
 		return rigidBody;
 	}
 
@@ -499,7 +1138,7 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 * Seta à velocidade do elemento em graus celcios.
 	 */
 	public  void setRotationVelocityInDegree(double rotationVelocity) {
-		this.rotationVelocity = Math.toRadians(rotationVelocity);
+		this.rotationVelocity = GameMath.toRadians(rotationVelocity);
 	}
 
 	/**
@@ -513,7 +1152,7 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 * Adiciona à rotação do elemento.
 	 */
 	public  void addToRotationInDegree(double rotation){
-		this.setRotationInRadians(this.rotation += Math.toRadians(rotation));
+		this.setRotationInRadians(this.rotation += GameMath.toRadians(rotation));
 	}
 	
 	/**
@@ -528,6 +1167,7 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	 */
 	public  void addToVelocity(Vector2D velocity){
 		this.velocity.addTo(velocity);
+		wakeUp();
 	}
 	
 	/**
@@ -657,6 +1297,8 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	@Override
 	public void setBasePosition(double x, double y) {
 		this.position.set(x + width/2, y + height/2);
+		staticChanged();
+		wakeUp();
 	}
 
 	/**
@@ -665,5 +1307,30 @@ public class PhysicElement extends GameElement implements DrawableElement, Touch
 	@Override
 	public void setBasePosition(Vector2D position) {
 		this.position.set(position.getX() + width/2, position.getY() + height/2);
+		staticChanged();
+		wakeUp();
+	}
+	
+	/**
+	 * Seta o objeto como deletado.
+	 */
+	@Override
+	public void setDeleted(boolean deleted) {
+		if(deleted != isDeleted() && !estatic){
+			supportChanged();
+		}
+		super.setDeleted(deleted);
+		staticChanged();
+	}
+	
+	/**
+	 * Seta a sena à qual o objeto pertence.
+	 */
+	@Override
+	public void setScene(Scene scene) {
+		//Registra a alteração tanto na cena antiga quanto na nova
+		staticChanged();
+		super.setScene(scene);
+		staticChanged();
 	}
 }
@@ -0,0 +1,366 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Histórico do estado físico dos elementos nos últimos quadros, usado para voltar a simulação no tempo.
+ * Cada quadro é guardado em um ByteBuffer pré-alocado, em um formato binário compacto com um registro por elemento,
+ * de modo que salvar e restaurar um quadro não aloca memória.
+ * @author Willians Magalhães Primo
+ */
+public class PhysicHistory {
+	//Formato do registro de um elemento
+	private static final int CODE = 0,
+							 POSITION_X = 4,
+							 POSITION_Y = 12,
+							 VELOCITY_X = 20,
+							 VELOCITY_Y = 28,
+							 ACELERATION_X = 36,
+							 ACELERATION_Y = 44,
+							 ROTATION = 52,
+							 ROTATION_VELOCITY = 60,
+							 SLEEP_TIME = 68,
+							 FLAGS = 72,
+							 RECORD_SIZE = 76;
+	
+	//Bits do campo de flags
+	private static final int STATIC = 1,
+							 SLEEPING = 2,
+							 COLIDABLE = 4,
+							 RIGID_BODY = 8,
+							 BULLET = 16;
+	
+	//Quadros guardados em anel
+	private ByteBuffer[] frames;
+	private int[] sizes;
+	private int first = 0,
+				size = 0;
+	
+	//Pares em contato da fila de eventos em cada quadro, ou -1 caso o quadro tenha sido guardado sem a fila
+	private PhysicElement[][] contactOnes,
+							  contactOthers;
+	private int[] contactSizes;
+	
+	//Impulsos do warm starting do ImpulseSolver em cada quadro, ou -1 caso o quadro tenha sido guardado sem o resolvedor
+	private long[][] impulseKeys;
+	private double[][] normalImpulses,
+					   tangentImpulses;
+	private int[] impulseSizes;
+	
+	//Índices dos registros ordenados pelo código, usados para achar os elementos que mudaram de posição na cena
+	private int[] order;
+	
+	//Construtores
+	public PhysicHistory(int frames, int capacity){
+		this.frames = new ByteBuffer[frames];
+		this.sizes = new int[frames];
+		this.contactOnes = new PhysicElement[frames][0];
+		this.contactOthers = new PhysicElement[frames][0];
+		this.contactSizes = new int[frames];
+		this.impulseKeys = new long[frames][0];
+		this.normalImpulses = new double[frames][0];
+		this.tangentImpulses = new double[frames][0];
+		this.impulseSizes = new int[frames];
+		for(int i = 0; i < frames; i++){
+			this.frames[i] = ByteBuffer.allocate(capacity*RECORD_SIZE);
+		}
+		this.order = new int[capacity];
+	}
+	
+	/**
+	 * Guarda o estado atual dos elementos como o quadro mais recente, substituindo o mais antigo caso o histórico esteja cheio.
+	 */
+	public void save(List<GameElement> elements){
+		save(elements, null, null);
+	}
+	
+	/**
+	 * Guarda o estado atual dos elementos, os pares em contato da fila de eventos e os impulsos do warm starting do
+	 * resolvedor como o quadro mais recente. A fila e o resolvedor podem ser nulos.
+	 * Usado pelo PhysicSimulator, veja PhysicSimulator.saveHistory.
+	 */
+	public void save(List<GameElement> elements, ContactEventQueue eventQueue, ImpulseSolver impulseSolver){
+		int slot = (first + size)%frames.length;
+		if(size == frames.length){
+			first = (first + 1)%frames.length;
+		}else{
+			size++;
+		}
+		
+		if(frames[slot].capacity() < elements.size()*RECORD_SIZE){
+			frames[slot] = ByteBuffer.allocate(elements.size()*2*RECORD_SIZE);
+		}
+		ByteBuffer buffer = frames[slot];
+		
+		PhysicElement element = null;
+		for(int i = 0; i < elements.size(); i++){
+			element = (PhysicElement)elements.get(i);
+			int record = i*RECORD_SIZE;
+			buffer.putInt(record + CODE, element.getCode());
+			buffer.putDouble(record + POSITION_X, element.getPosition().getX());
+			buffer.putDouble(record + POSITION_Y, element.getPosition().getY());
+			buffer.putDouble(record + VELOCITY_X, element.getVelocity().getX());
+			buffer.putDouble(record + VELOCITY_Y, element.getVelocity().getY());
+			buffer.putDouble(record + ACELERATION_X, element.getAceleration().getX());
+			buffer.putDouble(record + ACELERATION_Y, element.getAceleration().getY());
+			buffer.putDouble(record + ROTATION, element.getRotation());
+			buffer.putDouble(record + ROTATION_VELOCITY, element.getRotationVelocity());
+			buffer.putInt(record + SLEEP_TIME, element.getSleepTime());
+			buffer.putInt(record + FLAGS, (element.isStatic() ? STATIC : 0) | (element.isSleeping() ? SLEEPING : 0)
+										  | (element.isColidable() ? COLIDABLE : 0) | (element.isRigidBody() ? RIGID_BODY : 0)
+										  | (element.isBullet() ? BULLET : 0));
+		}
+		sizes[slot] = elements.size();
+		saveContacts(slot, eventQueue);
+		saveImpulses(slot, impulseSolver);
+	}
+	
+	/**
+	 * Restaura o estado dos elementos guardado há um certo número de quadros, sendo zero o quadro mais recente.
+	 * Os quadros mais novos que o restaurado são descartados, pois deixam de fazer parte da história.
+	 * Os elementos são encontrados pelo código, elementos adicionados depois do quadro não são alterados.
+	 * Apenas os elementos são restaurados, quando usado com um PhysicSimulator a volta deve ser feita por
+	 * PhysicSimulator.restoreHistory, que também restaura o estado do próprio simulador.
+	 * Retorna se o quadro existia.
+	 */
+	public boolean restore(int framesAgo, List<GameElement> elements){
+		return restore(framesAgo, elements, null, null);
+	}
+	
+	/**
+	 * Restaura o estado dos elementos, os pares em contato da fila de eventos e os impulsos do warm starting do resolvedor
+	 * guardados há um certo número de quadros. Caso o quadro tenha sido guardado sem a fila ou sem o resolvedor,
+	 * eles são esvaziados. A fila e o resolvedor podem ser nulos. Retorna se o quadro existia.
+	 */
+	public boolean restore(int framesAgo, List<GameElement> elements, ContactEventQueue eventQueue, ImpulseSolver impulseSolver){
+		if(framesAgo < 0 || framesAgo >= size){
+			return false;
+		}
+		size -= framesAgo;
+		int slot = (first + size - 1)%frames.length;
+		ByteBuffer buffer = frames[slot];
+		int records = sizes[slot];
+		
+		//Caso a cena tenha a mesma ordem do quadro, os registros são aplicados diretamente
+		boolean sameOrder = records == elements.size();
+		for(int i = 0; sameOrder && i < records; i++){
+			sameOrder = buffer.getInt(i*RECORD_SIZE + CODE) == elements.get(i).getCode();
+		}
+		
+		if(sameOrder){
+			for(int i = 0; i < records; i++){
+				apply(buffer, i*RECORD_SIZE, (PhysicElement)elements.get(i));
+			}
+		}else{
+			sortRecords(buffer, records);
+			for(int i = 0; i < elements.size(); i++){
+				int record = findRecord(buffer, records, elements.get(i).getCode());
+				if(record >= 0){
+					apply(buffer, record, (PhysicElement)elements.get(i));
+				}
+			}
+		}
+		
+		if(eventQueue != null){
+			if(contactSizes[slot] >= 0){
+				eventQueue.setContacts(contactOnes[slot], contactOthers[slot], contactSizes[slot]);
+			}else{
+				eventQueue.clear();
+			}
+		}
+		if(impulseSolver != null){
+			if(impulseSizes[slot] >= 0){
+				impulseSolver.setWarmStarts(impulseKeys[slot], normalImpulses[slot], tangentImpulses[slot], impulseSizes[slot]);
+			}else{
+				impulseSolver.clear();
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Descarta todos os quadros guardados.
+	 */
+	public void clear(){
+		for(int i = 0; i < frames.length; i++){
+			Arrays.fill(contactOnes[i], null);
+			Arrays.fill(contactOthers[i], null);
+		}
+		first = 0;
+		size = 0;
+	}
+	
+	/**
+	 * Retorna o número de quadros guardados.
+	 */
+	public int getSize(){
+		return size;
+	}
+	
+	/**
+	 * Retorna o número máximo de quadros guardados.
+	 */
+	public int getFrames(){
+		return frames.length;
+	}
+	
+	/**
+	 * Guarda os pares em contato da fila de eventos em um quadro.
+	 */
+	private void saveContacts(int slot, ContactEventQueue eventQueue){
+		Arrays.fill(contactOnes[slot], null);
+		Arrays.fill(contactOthers[slot], null);
+		if(eventQueue == null){
+			contactSizes[slot] = -1;
+			return;
+		}
+		
+		int contacts = eventQueue.getContacts();
+		if(contactOnes[slot].length < contacts){
+			contactOnes[slot] = new PhysicElement[contacts*2];
+			contactOthers[slot] = new PhysicElement[contacts*2];
+		}
+		for(int i = 0; i < contacts; i++){
+			contactOnes[slot][i] = eventQueue.getContactOne(i);
+			contactOthers[slot][i] = eventQueue.getContactOther(i);
+		}
+		contactSizes[slot] = contacts;
+	}
+	
+	/**
+	 * Guarda os impulsos do warm starting do resolvedor em um quadro.
+	 */
+	private void saveImpulses(int slot, ImpulseSolver impulseSolver){
+		if(impulseSolver == null){
+			impulseSizes[slot] = -1;
+			return;
+		}
+		
+		int impulses = impulseSolver.getWarmStarts();
+		if(impulseKeys[slot].length < impulses){
+			impulseKeys[slot] = new long[impulses*2];
+			normalImpulses[slot] = new double[impulses*2];
+			tangentImpulses[slot] = new double[impulses*2];
+		}
+		for(int i = 0; i < impulses; i++){
+			impulseKeys[slot][i] = impulseSolver.getWarmStartKey(i);
+			normalImpulses[slot][i] = impulseSolver.getWarmStartNormalImpulse(i);
+			tangentImpulses[slot][i] = impulseSolver.getWarmStartTangentImpulse(i);
+		}
+		impulseSizes[slot] = impulses;
+	}
+	
+	/**
+	 * Aplica um registro a um elemento.
+	 */
+	private void apply(ByteBuffer buffer, int record, PhysicElement element){
+		int flags = buffer.getInt(record + FLAGS);
+		element.setStatic((flags & STATIC) != 0);
+		if(element.isColidable() != ((flags & COLIDABLE) != 0)){
+			element.setColidable((flags & COLIDABLE) != 0);
+		}
+		element.setRigidBody((flags & RIGID_BODY) != 0);
+		element.setBullet((flags & BULLET) != 0);
+		if((flags & SLEEPING) != 0){
+			element.sleep();
+		}else{
+			element.wakeUp();
+		}
+		element.setSleepTime(buffer.getInt(record + SLEEP_TIME));
+		
+		//Os elementos estáticos só são registrados como alterados caso tenham se movido, para que a volta
+		//não reconstrua os índices de elementos estáticos sem necessidade
+		double x = buffer.getDouble(record + POSITION_X),
+			   y = buffer.getDouble(record + POSITION_Y),
+			   rotation = buffer.getDouble(record + ROTATION);
+		boolean moved = element.getPosition().getX() != x || element.getPosition().getY() != y;
+		element.getPosition().set(x, y);
+		element.getVelocity().set(buffer.getDouble(record + VELOCITY_X), buffer.getDouble(record + VELOCITY_Y));
+		element.getAceleration().set(buffer.getDouble(record + ACELERATION_X), buffer.getDouble(record + ACELERATION_Y));
+		if(element.getRotation() != rotation){
+			element.setRotationInRadians(rotation);
+			moved = true;
+		}
+		element.setRotationVelocityInRadians(buffer.getDouble(record + ROTATION_VELOCITY));
+		if(moved){
+			element.staticChanged();
+		}
+		
+		//Não interpola o desenho através da volta no tempo
+		element.savePreviousState();
+	}
+	
+	/**
+	 * Ordena os índices dos registros de um quadro pelo código do elemento.
+	 */
+	private void sortRecords(ByteBuffer buffer, int records){
+		if(order.length < records){
+			order = new int[records*2];
+		}
+		for(int i = 0; i < records; i++){
+			order[i] = i;
+		}
+		
+		int gap = 1;
+		while(gap < records/3){
+			gap = gap*3 + 1;
+		}
+		while(gap > 0){
+			for(int i = gap; i < records; i++){
+				int index = order[i];
+				int code = buffer.getInt(index*RECORD_SIZE + CODE);
+				int j = i;
+				while(j >= gap && buffer.getInt(order[j - gap]*RECORD_SIZE + CODE) > code){
+					order[j] = order[j - gap];
+					j -= gap;
+				}
+				order[j] = index;
+			}
+			gap /= 3;
+		}
+	}
+	
+	/**
+	 * Retorna a posição do registro de um código no quadro, ou -1 caso não exista. Os registros devem estar ordenados.
+	 */
+	private int findRecord(ByteBuffer buffer, int records, int code){
+		int low = 0, high = records - 1;
+		while(low <= high){
+			int middle = (low + high) >>> 1;
+			int record = order[middle]*RECORD_SIZE;
+			int middleCode = buffer.getInt(record + CODE);
+			if(middleCode < code){
+				low = middle + 1;
+			}else if(middleCode > code){
+				high = middle - 1;
+			}else{
+				return record;
+			}
+		}
+		return -1;
+	}
+}
@@ -21,7 +21,11 @@ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
 SOFTWARE. */
 
 package easygame;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Essa classe tem como função detectar e tratar colisões entre elmentos do jogo e também simular reações físicas como gravidade
@@ -31,45 +35,19 @@ import java.util.HashMap;
 
 public class PhysicSimulator {
 	//Variáveis globais e estáticas para serem usadas na simulação com a finalidade de não realocar a cada interação:
-	protected Vector2D 	 colisionPoint = null,
-						 onePosition = null,
-						 otherPosition = null,
-						 oneVelocity = null,
-						 otherVelocity = null,
-						 normal = null,
-						 intersection = null,
-						 maximumIntersection = null,
-						 onePoint = null,
-						 otherPoint = null;
-	
-	protected double   angle = 0.0f,
-					   normalAngle = 0.0f,
-					   normalSignalX = 0.0f,
-					   normalSignalY = 0.0f,
-					   timeX = 0.0f,
-					   timeY = 0.0f,
-					   velocityX = 0.0f,
-					   velocityY = 0.0f,
-					   velocity = 0.0f,
-					   weight = 0.0f,
-					   friction = 0.0f,
-					   elasticity = 0.0f,
-					   separationX,
-					   separationY;
-			
-	protected boolean colided = false;
+	protected Vector2D 	 onePoint = new Vector2D(),
+						 otherPoint = new Vector2D();
+	
 	protected GameElement oneElement = null,
 			              otherElement = null,
 			              element = null;
 	
-	protected ColisionDetector colisionDetector = null;
-	
 	/**
 	 * Tipos de formas para tratamento de colisão.
 	 * @author Wiliams Magalhães Primo
 	 *
 	 */
-	public enum Shape{ELIPSE, RECTANGLE}
+	public enum Shape{ELIPSE, RECTANGLE, POLYGON}
 	
 	/**
 	 * Vetor com ordem de acesso as cordenados de um retângulo.
@@ -82,19 +60,13 @@ public class PhysicSimulator {
 	public static double EPSILON = 0.0001f;
 	public static double separation = 0.0001f;
 	
-	/**
-	 * Interface que determina a função de detecção de colisões.
-	 * @author Wiliams Magalhães Primo
-	 *
-	 */
-	private interface ColisionDetector {
-		public boolean detectColision(PhysicElement one, PhysicElement other);
-	}
+	//Distância que um projétil penetra no elemento atingido, para que a colisão seja tratada na mesma simulação
+	public static double bulletPenetration = 0.5f;
 	
 	/**
-	 * Hash com as funções com tratamento de colisões.
+	 * Tabela com as funções de tratamento de colisões, indexada pelo ordinal das formas dos dois elementos.
 	 */
-	private HashMap<String , ColisionDetector> colisionDetectors = new HashMap<String, ColisionDetector>();
+	private ColisionDetector[][] colisionDetectors = new ColisionDetector[Shape.values().length][Shape.values().length];
 	
 	//Sena na qual o simulador foi instnciado
 	private Scene scene = null;
@@ -102,9 +74,224 @@ public class PhysicSimulator {
 	//Gravidade
 	private Vector2D gravity = new Vector2D(0.0f, 0.0f);
 	
+	//Fase ampla usada para selecionar os pares candidatos, quando nula é usado o método de força bruta
+	private BroadPhase broadPhase = null;
+	
+	//Propriedades do repouso dos elementos
+	private boolean sleepEnabled = false;
+	private double linearSleepVelocity = 0.05f,
+				   rotationSleepVelocity = 0.005f;
+	private int framesToSleep = 60,
+				sleepingElements = 0,
+				supportVersion = 0;
+	
+	//Camada de blocos e as colisões com ela, guardadas para serem informadas depois da resolução
+	private TileLayer tileLayer = null;
+	private int tileVersion = 0;
+	private List<PhysicElement> tileElements = new ArrayList<PhysicElement>();
+	private int[] tileCells = new int[16];
+	private double tileMinX, tileMinY, tileMaxX, tileMaxY, tileNormalX, tileNormalY, tileDepth;
+	
+	//Grade de navegação, atualizada e com os pedidos de caminho processados ao fim de cada simulação
+	private NavigationGrid navigationGrid = null;
+	
+	//Índice dos elementos estáticos, quando nulo os elementos estáticos são tratados pela fase ampla
+	private StaticIndex staticIndex = null;
+	private List<GameElement> dynamicElements = new ArrayList<GameElement>();
+	private PhysicElement queryElement = null;
+	private StaticIndex.QueryCallback staticCallback = new StaticIndex.QueryCallback() {
+		@Override
+		public boolean onElement(PhysicElement element) {
+			if(queryElement.canColideWith(element)){
+				colisionCandidate(queryElement, element);
+			}
+			return true;
+		}
+	};
+	
+	//Varredura dos projéteis
+	private List<PhysicElement> bullets = new ArrayList<PhysicElement>();
+	private Vector2D[] bulletStarts = new Vector2D[0];
+	private PhysicElement bulletElement = null;
+	private Vector2D bulletStart = null;
+	private double bulletTime = 1.0f;
+	private Vector2D bulletShapeStart = new Vector2D(0.0f, 0.0f);
+	private int polygonFace = 0;
+	private StaticIndex.QueryCallback bulletCallback = new StaticIndex.QueryCallback() {
+		@Override
+		public boolean onElement(PhysicElement element) {
+			sweepBullet(bulletElement, element);
+			return true;
+		}
+	};
+	
+	//Árvore consultada com a caixa varrida de cada projétil, a da fase ampla quando ela é uma AABBTreeBroadPhase
+	private AABBTreeBroadPhase bulletIndex = new AABBTreeBroadPhase();
+	private AABBTree bulletTree = null;
+	private AABBTree.QueryCallback bulletTreeCallback = new AABBTree.QueryCallback() {
+		@Override
+		public boolean onProxy(int proxy) {
+			sweepBullet(bulletElement, bulletTree.getElement(proxy));
+			return true;
+		}
+	};
+	
+	/**
+	 * Interface usada para filtrar os elementos encontrados pelas consultas espaciais.
+	 * @author Willians Magalhães Primo
+	 */
+	public interface QueryFilter {
+		/**
+		 * Retorna se o elemento deve fazer parte do resultado da consulta.
+		 */
+		public boolean accept(PhysicElement element);
+	}
+	
+	//Consultas espaciais, servidas pela árvore da fase ampla ou por uma árvore própria atualizada uma vez por simulação
+	private static final int QUERY_POINT = 0,
+							 QUERY_AABB = 1,
+							 QUERY_CIRCLE = 2;
+	private AABBTreeBroadPhase queryIndex = new AABBTreeBroadPhase();
+	private AABBTreeBroadPhase lastQueryIndex = null;
+	private int simulations = 0,
+				querySimulation = -1,
+				queryType = QUERY_POINT,
+				queryMask = 0;
+	private double queryMinX, queryMinY, queryMaxX, queryMaxY, queryX, queryY, queryRadio, 
+				   rayStartX, rayStartY, rayDirectionX, rayDirectionY;
+	private QueryFilter queryFilter = null;
+	private AABBTree queryTree = null;
+	private List<PhysicElement> queryResults = null;
+	private List<RaycastHit> raycastHits = null;
+	private RaycastHit raycastHit = null;
+	private RaycastHit[] raycastPool = new RaycastHit[0];
+	private AABBTree.QueryCallback regionCallback = new AABBTree.QueryCallback() {
+		@Override
+		public boolean onProxy(int proxy) {
+			PhysicElement element = queryTree.getElement(proxy);
+			if(!acceptQuery(element)){
+				return true;
+			}
+			
+			boolean found = false;
+			if(queryType == QUERY_POINT){
+				found = containsPoint(element, queryX, queryY);
+			}else if(queryType == QUERY_CIRCLE){
+				found = overlapsCircle(element, queryX, queryY, queryRadio);
+			}else{
+				double x = element.getPosition().getX(), y = element.getPosition().getY(), radio = element.getRadio();
+				found = x - radio <= queryMaxX && x + radio >= queryMinX && y - radio <= queryMaxY && y + radio >= queryMinY;
+			}
+			if(found){
+				queryResults.add(element);
+			}
+			return true;
+		}
+	};
+	private AABBTree.RaycastCallback raycastCallback = new AABBTree.RaycastCallback() {
+		@Override
+		public double onProxy(int proxy, double maximumFraction) {
+			PhysicElement element = queryTree.getElement(proxy);
+			if(!acceptQuery(element)){
+				return maximumFraction;
+			}
+			
+			double fraction = raycastElement(element);
+			if(fraction > maximumFraction){
+				return maximumFraction;
+			}
+			
+			if(raycastHits == null){
+				raycastHit.set(element, rayStartX + rayDirectionX*fraction, rayStartY + rayDirectionY*fraction, 
+							   otherPoint.getX(), otherPoint.getY(), fraction);
+				return fraction;
+			}
+			
+			if(raycastHits.size() == raycastPool.length){
+				raycastPool = Arrays.copyOf(raycastPool, Math.max(raycastPool.length*2, 8));
+			}
+			if(raycastPool[raycastHits.size()] == null){
+				raycastPool[raycastHits.size()] = new RaycastHit();
+			}
+			RaycastHit hit = raycastPool[raycastHits.size()];
+			hit.set(element, rayStartX + rayDirectionX*fraction, rayStartY + rayDirectionY*fraction, 
+					otherPoint.getX(), otherPoint.getY(), fraction);
+			raycastHits.add(hit);
+			return maximumFraction;
+		}
+	};
+	
+	//Subpassos, escolhidos a cada simulação entre o mínimo e o máximo
+	private int minimumSubsteps = 1,
+				maximumSubsteps = 1;
+	private double substepDisplacement = 0.5f;
+	//Fração da simulação integrada pelo subpasso atual, usada para que o atrito não dependa do número de subpassos
+	private double stepTime = 1.0f;
+	private PhysicStats stats = new PhysicStats();
+	
+	//Fila de eventos de contato, despachados depois da resolução das colisões. Desativada por padrão,
+	//mantendo as chamadas de colide durante a detecção como nas versões anteriores
+	private boolean bufferedEvents = false;
+	private ContactEventQueue eventQueue = new ContactEventQueue();
+	
+	//Contexto usado no tratamento das colisões na thread do jogo
+	private ContactContext serialContext = new ContactContext();
+	
+	//Resolvedor iterativo opcional, que substitui o tratamento das colisões pelos detectores
+	private ImpulseSolver impulseSolver = null;
+	
+	//Detecção paralela, os pares candidatos são testados em tarefas com contextos próprios
+	private int parallelism = 1;
+	private ForkJoinPool pool = null;
+	private ContactContext candidates = new ContactContext();
+	private ContactContext[] contexts = new ContactContext[0];
+	private DetectionTask[] tasks = new DetectionTask[0];
+	private List<GameElement> parallelElements = null;
+	private boolean collectingCandidates = false;
+	
+	//Ilhas de contato, componentes conexos de corpos não estáticos que se tocam, resolvidas em paralelo
+	private boolean solvingIslands = false;
+	private int islandNodes = 0,
+				islands = 0;
+	private PhysicElement[] islandElements = new PhysicElement[0];
+	private int[] islandParents = new int[0],
+				  islandIds = new int[0],
+				  pairIslands = new int[0],
+				  islandStarts = new int[0],
+				  islandPairs = new int[0];
+	
+	/**
+	 * Tarefa da simulação paralela. As tarefas formam uma árvore criada uma única vez, 
+	 * em que cada folha testa uma parte dos pares ou resolve uma parte das ilhas usando o seu próprio contexto.
+	 */
+	private class DetectionTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int first, last;
+		private DetectionTask one = null, other = null;
+		
+		public DetectionTask(int first, int last){
+			this.first = first;
+			this.last = last;
+		}
+		
+		@Override
+		protected void compute() {
+			if(one == null && solvingIslands){
+				solveChunk(first, last);
+			}else if(one == null){
+				detectChunk(first, last);
+			}else{
+				invokeAll(one, other);
+			}
+		}
+	}
+	
 	//Construtores
 	public PhysicSimulator(Scene scene){
 		this.scene = scene;
+		if(scene != null){
+			supportVersion = scene.getSupportModifications();
+		}
 		Initialize();
 	}
 	/**
@@ -118,461 +305,2682 @@ public class PhysicSimulator {
 			return;
 		}
 		
+		wakeUpUnsupported();
+		wakeUpOnTiles();
 		for(int i = 0; i < scene.getPhysicElements().size(); i++){
-			update((PhysicElement)scene.getPhysicElements().get(i));
+			((PhysicElement)scene.getPhysicElements().get(i)).savePreviousState();
 		}
 		
-		for(int i = 0; i < scene.getPhysicElements().size(); i++){
-			oneElement = scene.getPhysicElements().get(i);
-			if(!((PhysicElement)oneElement).isStatic()){
-				for(int j = 0; j < scene.getPhysicElements().size(); j++){
-					otherElement = scene.getPhysicElements().get(j);
-					detectColision((PhysicElement)oneElement, (PhysicElement)otherElement);
-				}
-			}
+		simulations++;
+		stats.clear();
+		int substeps = getSubsteps();
+		stats.setSubsteps(substeps);
+		for(int i = 0; i < substeps; i++){
+			step(1.0f/substeps);
 		}
-	}
-	/**
-	 * Esta função ordena os elementos a serem simulados com base no valor Y da posição de cada elemento.
-	 */
-	public void sortElementsByPosition(){
-		int j = 0;
-		for(int i = 1; i < scene.getPhysicElements().size(); i++){
-			j = i - 1;
-			oneElement = scene.getPhysicElements().get(i);
-			while(j >= 0 && ((PhysicElement)oneElement).getPosition().getY() > ((PhysicElement)scene.getPhysicElements().get(j)).getPosition().getY()){
-				scene.getPhysicElements().set(j + 1, scene.getPhysicElements().get(j));
-				j--;
-			}
-			scene.getPhysicElements().set(j + 1, oneElement);			
+		
+		if(bufferedEvents){
+			eventQueue.dispatch();
 		}
-	}
-	
-	/**
-	 * Essa função aplica as alterações causadas pela velocidade e acelaração.
-	 */
-	private void update(PhysicElement element){
-		if(!element.isStatic() && !element.isDeleted() && element.isRigidBody()){
-			element.getVelocity().addTo(element.getAceleration());
-			element.getVelocity().addTo(getGravity());
-			element.addToPosition(element.getVelocity());
-			element.addToRotationInRadians(element.getRotationVelocity());
+		dispatchTileColisions();
+		
+		updateSleep();
+		stats.setSleepingElements(sleepingElements);
+		
+		if(navigationGrid != null){
+			navigationGrid.update(scene, tileLayer);
 		}
 	}
 	
 	/**
-	 * Essa função é referente a etapa genéria da detecção de colisão.
+	 * Escolhe o número de subpassos da simulação pelo maior deslocamento previsto de um corpo em relação ao seu raio,
+	 * de modo que nenhum corpo se desloque mais que substepDisplacement vezes o seu raio em um subpasso.
 	 */
-	private void detectColision(PhysicElement one, PhysicElement other){
-		normal = Vector2D.subtract(one.getPosition(), other.getPosition());
-
-		if(normal.module() < one.getRadio() + other.getRadio() && one != other && one.isColidable() && other.isColidable()){
-			colisionDetector  = colisionDetectors.get(getHashCode(one.getShape(), other.getShape()));
-			if(colisionDetector != null){
-				if(colisionDetector.detectColision(one, other) == true){
-					return;
-				}
-			}
-			
-			if(one.isStatic() || other.isStatic()){
-				colisionDetector  = colisionDetectors.get(getHashCode(other.getShape(), one.getShape()));
-				if(colisionDetector != null){
-					colisionDetector.detectColision(other, one);
-				}
+	private int getSubsteps(){
+		if(maximumSubsteps <= minimumSubsteps){
+			return Math.max(minimumSubsteps, 1);
+		}
+		
+		double maximumRatio = 0;
+		PhysicElement element = null;
+		for(int i = 0; i < scene.getPhysicElements().size(); i++){
+			element = (PhysicElement)scene.getPhysicElements().get(i);
+			if(element.isActive() && !element.isDeleted() && element.isRigidBody() && element.getRadio() > 0){
+				double x = element.getVelocity().getX() + element.getAceleration().getX() + gravity.getX(),
+					   y = element.getVelocity().getY() + element.getAceleration().getY() + gravity.getY();
+				maximumRatio = Math.max(maximumRatio, Math.sqrt(x*x + y*y)/element.getRadio());
 			}
 		}
+		
+		int substeps = (int)Math.ceil(maximumRatio/substepDisplacement);
+		return Math.min(Math.max(substeps, Math.max(minimumSubsteps, 1)), maximumSubsteps);
 	}
+	
 	/**
-	 * Essa função inicialisa todos os objetos tratadores de colisão.
+	 * Executa um subpasso da simulação, integrando os corpos pela fração de tempo dada e tratando as colisões.
+	 * Com o ImpulseSolver, as velocidades são integradas antes da detecção e as posições depois da resolução.
 	 */
-	private void Initialize(){
+	private void step(double time){
+		stepTime = time;
+		saveBulletStarts();
 		
-		//ELIPSE x ELIPSE
-		colisionDetectors.put(getHashCode(Shape.ELIPSE, Shape.ELIPSE), new ColisionDetector() {
-			@Override
-			public boolean detectColision(PhysicElement one, PhysicElement other) {
-				if(one.isRigidBody() && other.isRigidBody()){
-					normal = Vector2D.subtract(other.getPosition(), one.getPosition());
-					
-					oneVelocity = one.getVelocity();
-					otherVelocity = other.getVelocity();
-					
-					angle = normal.angle();
-					intersection = new Vector2D(Math.abs((one.getRadio() + other.getRadio() - normal.module())), 0);
-					intersection.rotate(angle);
-					
-					separationX = separation*signum(intersection.getX());
-					separationY = separation*signum(intersection.getY());
-					
-					velocityX = Math.abs(oneVelocity.getX()) + Math.abs(otherVelocity.getX());
-					if(velocityX != 0){
-						if(!one.isStatic())one.addToPositionX(-intersection.getX()*Math.abs(oneVelocity.getX()/velocityX) - separationX);
-						if(!other.isStatic())other.addToPositionX(intersection.getX()*Math.abs(otherVelocity.getX()/velocityX) + separationX);
-					}else{
-						if(!one.isStatic())one.addToPositionX(-intersection.getX()/2 - separationX);
-						else other.addToPositionX(intersection.getX()/2 + separationX);
-						if(!other.isStatic())other.addToPositionX(intersection.getX()/2 + separationX);
-						else one.addToPositionX(-intersection.getX()/2 - separationX);
-					}
-					
-					velocityY = Math.abs(oneVelocity.getY()) + Math.abs(otherVelocity.getY());
-					if(velocityY != 0){
-						if(!one.isStatic())one.addToPositionY(-intersection.getY()*Math.abs(oneVelocity.getY()/velocityY) - separationY);
-						if(!other.isStatic())other.addToPositionY(intersection.getY()*Math.abs(otherVelocity.getY()/velocityY) + separationY);
-					}else{
-						if(!one.isStatic())one.addToPositionY(-intersection.getY()/2 - separationY);
-						else other.addToPositionY(intersection.getY()/2);
-						if(!other.isStatic())other.addToPositionY(intersection.getY()/2 + separationY);
-						else one.addToPositionY(-intersection.getY()/2 - separationY);
-					}
-				}
-				
-				if(one.isRigidBody() && other.isRigidBody()){
-					reacalcVelocities(one, other, angle);
-				}
-				
-				colisionPoint = new Vector2D(other.getRadio(), 0.0f);
-				colisionPoint.rotate(angle);
-				colisionPoint.addTo(other.getPosition());
-				
-				one.colide(other, colisionPoint);
-				other.colide(one, colisionPoint);
-					
-				return true;
+		for(int i = 0; i < scene.getPhysicElements().size(); i++){
+			if(impulseSolver != null){
+				updateVelocity((PhysicElement)scene.getPhysicElements().get(i), time);
+			}else{
+				update((PhysicElement)scene.getPhysicElements().get(i), time);
 			}
-		});
+		}
 		
+		List<GameElement> elements = scene.getPhysicElements();
+		if(staticIndex != null){
+			staticIndex.update(scene);
+			elements = getDynamicElements();
+		}
 		
-		//ELIPSE X RETANGULO
-		colisionDetectors.put(getHashCode(Shape.ELIPSE, Shape.RECTANGLE), new ColisionDetector() {
-			@Override
-			public boolean detectColision(PhysicElement one, PhysicElement other) {
-				return colisionDetectors.get(getHashCode(other.getShape(), one.getShape())).detectColision(other, one);
-			}
-		});	
+		if(impulseSolver == null){
+			sweepBullets(elements);
+		}
 		
-		//RETANGLULO X ELIPSE
-		colisionDetectors.put(getHashCode(Shape.RECTANGLE, Shape.ELIPSE), new ColisionDetector() {
-			@Override
-			public boolean detectColision(PhysicElement one, PhysicElement other) {				
-				angle = one.getRotation();
-				
-				onePosition = one.getPosition();
-				otherPosition = other.getPosition();
-				oneVelocity = one.getVelocity();
-				otherVelocity = other.getVelocity();
-				
-				if(angle != 0){					
-					onePosition.rotate(-angle);
-					otherPosition.rotate(-angle);
-					oneVelocity.rotate(-angle);
-					otherVelocity.rotate(-angle);
-				}
-
-				colided = false;
-				
-				if(isPointInRect(onePosition, one.getWidth() + 2*other.getRadio(), one.getHeight() + 2*other.getRadio(), otherPosition)){
-					colided = true;
-					
-					normal = Vector2D.subtract(onePosition, otherPosition);
-					normalSignalX = signum(normal.getX());
-					normalSignalY = signum(normal.getY());
-					
-					onePoint = new Vector2D(onePosition.getX() - normalSignalX*(one.getWidth()/2 + other.getRadio()),
-	                                        onePosition.getY() - normalSignalY*(one.getHeight()/2 + other.getRadio()));
-					
-					intersection = Vector2D.subtract(onePoint, otherPosition);
-						
-					if(one.isRigidBody() && other.isRigidBody()){
-						
-						velocityX = EPSILON;
-						if(Math.signum(oneVelocity.getX()) != Math.signum(otherVelocity.getX())){
-							velocityX = Math.abs(oneVelocity.getX() - otherVelocity.getX()) + EPSILON;
-						}
-						
-						velocityY = EPSILON;
-						if(Math.signum(oneVelocity.getY()) != Math.signum(otherVelocity.getY())){
-							velocityY = Math.abs(oneVelocity.getY() - otherVelocity.getY()) + EPSILON;
-						}
-						
-						timeX = (Math.abs(intersection.getX()) + EPSILON)/(velocityX);
-						timeY = (Math.abs(intersection.getY()) + EPSILON)/(velocityX);
-						
-						separationX = separation*signum(intersection.getX());
-						separationY = separation*signum(intersection.getY());
-						
-						if(timeX < timeY){
-							colisionPoint = new Vector2D(onePoint.getX(), otherPosition.getY());
-							velocityX = Math.abs(oneVelocity.getX()) + Math.abs(otherVelocity.getX());
-							if(velocityX != 0){
-								if(!one.isStatic())one.addToPositionX(-intersection.getX()*Math.abs(oneVelocity.getX()/velocityX) - separationX);
-								if(!other.isStatic())other.addToPositionX(intersection.getX()*Math.abs(otherVelocity.getX()/velocityX) + separationX);
-							}else{
-								if(!one.isStatic())one.addToPositionX(-intersection.getX()/2 -separationX);
-								else other.addToPositionX(intersection.getX()/2 + separationX);
-								if(!other.isStatic())other.addToPositionX(intersection.getX()/2 + separationX);
-								else one.addToPositionX(-intersection.getX()/2 - separationX);
-							}
-							intersection.setY(0.0f);
-							if(intersection.getX() == 0.0f){
-								intersection.setX(1.0f);
-							}
-						}else{
-							velocityY = Math.abs(oneVelocity.getY()) + Math.abs(otherVelocity.getY());
-							if(velocityY != 0){
-								if(!one.isStatic())one.addToPositionY(-intersection.getY()*Math.abs(oneVelocity.getY()/velocityY) - separationY);
-								if(!other.isStatic())other.addToPositionY(intersection.getY()*Math.abs(otherVelocity.getY()/velocityY) + separationY);
-							}else{
-								if(!one.isStatic())one.addToPositionY(-intersection.getY()/2 - separationY);
-								else other.addToPositionY(intersection.getY()/2 + separationX);
-								if(!other.isStatic())other.addToPositionY(intersection.getY()/2 + separationY);
-								else one.addToPositionY(-intersection.getY()/2 - separationY);
-							}
-							intersection.setX(0.0f);
-							if(intersection.getY() == 0.0f){
-								intersection.setY(-1.0f);
-							}
-						}
-						
-						intersection.rotate(angle);
-					    normalAngle = intersection.angle();
-					}
-					if(Math.abs(intersection.getX()) < Math.abs(intersection.getY())){
-						colisionPoint = new Vector2D(onePoint.getX(), otherPosition.getY());
-					}else{
-						colisionPoint = new Vector2D(otherPosition.getX(), onePoint.getY());
-					}
-					colisionPoint.rotate(-angle);
-				}
-				
-				if(angle != 0){
-					onePosition.rotate(angle);
-					otherPosition.rotate(angle);
-					oneVelocity.rotate(angle);
-					otherVelocity.rotate(angle);
-				}
-				
-				if(colided){
-					one.colide(other, colisionPoint);
-					other.colide(one, colisionPoint);
-					if(one.isRigidBody() && other.isRigidBody()){
-						reacalcVelocities(one, other, normalAngle);
+		if(parallelism > 1){
+			detectParallel(elements);
+		}else if(broadPhase != null){
+			broadPhase.findPairs(elements, this);
+		}else{
+			for(int i = 0; i < elements.size(); i++){
+				oneElement = elements.get(i);
+				if(((PhysicElement)oneElement).isActive()){
+					for(int j = 0; j < elements.size(); j++){
+						otherElement = elements.get(j);
+						detectColision((PhysicElement)oneElement, (PhysicElement)otherElement, serialContext);
 					}
-					return true;
 				}
-				return false;
 			}
-		});
+		}
 		
+		if(staticIndex != null && parallelism <= 1){
+			detectStaticColisions(elements);
+		}
 		
-		//RETANGULO x RETANGULO
-		colisionDetectors.put(getHashCode(Shape.RECTANGLE, Shape.RECTANGLE), new ColisionDetector() {
-			@Override
-			public boolean detectColision(PhysicElement one, PhysicElement other) {					
-				angle = one.getRotation();
-				
-				onePosition = one.getPosition();
-				otherPosition = other.getPosition();
-				oneVelocity = one.getVelocity();
-				otherVelocity = other.getVelocity();
-				
-				if(angle != 0){					
-					onePosition.rotate(-angle);
-					otherPosition.rotate(-angle);
-					oneVelocity.rotate(-angle);
-					otherVelocity.rotate(-angle);
-				}
-
-				colided = false;
-				otherPoint = new Vector2D(0.0f, 0.0f);
-				for(int i=0;i<rectanglePointAcess.length;i++){
-					
-					otherPoint.set(rectanglePointAcess[i][0]*other.getWidth()/2, rectanglePointAcess[i][1]*other.getHeight()/2);
-					if(other.getRotation() != 0){
-						otherPoint.rotate(other.getRotation());
-					}
-					otherPoint.addTo(otherPosition);
-					
-					if(isPointInRect(onePosition, one.getWidth(), one.getHeight(), otherPoint)){
-						colided = true;
-						
-						normal = Vector2D.subtract(otherPoint, otherPosition);
-						onePoint = new Vector2D(onePosition.getX() - signum(normal.getX())*one.getWidth()/2,
-		                                        onePosition.getY() - signum(normal.getY())*one.getHeight()/2);
-						
-						if(one.isRigidBody() && other.isRigidBody()){
-							
-							intersection = Vector2D.subtract(onePoint, otherPoint);
-							
-							separationX = separation*signum(intersection.getX());
-							separationY = separation*signum(intersection.getY());
-							
-							velocityX = EPSILON;
-							if(Math.signum(oneVelocity.getX()) != Math.signum(otherVelocity.getX())){
-								velocityX = Math.abs(oneVelocity.getX() - otherVelocity.getX()) + EPSILON;
-							}
-							
-							velocityY = EPSILON;
-							if(Math.signum(oneVelocity.getY()) != Math.signum(otherVelocity.getY())){
-								velocityY = Math.abs(oneVelocity.getY() - otherVelocity.getY()) + EPSILON;
-							}
-							
-							timeX = Math.abs(intersection.getX() + EPSILON)/velocityX;
-							timeY = Math.abs(intersection.getY() + EPSILON)/velocityY;
-							
-							if(timeX < timeY){
-								velocityX = Math.abs(oneVelocity.getX()) + Math.abs(otherVelocity.getX());
-								if(velocityX != 0){
-									if(!one.isStatic())one.addToPositionX(-intersection.getX()*Math.abs(oneVelocity.getX()/velocityX) - separationX);
-									if(!other.isStatic())other.addToPositionX(+intersection.getX()*Math.abs(otherVelocity.getX()/velocityX) + separationX);
-								}else{
-									if(!one.isStatic())one.addToPositionX(-intersection.getX()/2 - separationX);
-									else other.addToPositionX(intersection.getX()/2 + separationX);
-									if(!other.isStatic())other.addToPositionX(intersection.getX()/2 + separationX);
-									else one.addToPositionX(-intersection.getX()/2 - separationX);
-								}
-								intersection.setY(0.0f);
-								if(intersection.getX() == 0.0f){
-									intersection.setX(1.0f);
-								}
-							}else{
-								velocityY = Math.abs(oneVelocity.getY()) + Math.abs(otherVelocity.getY());
-								if(velocityY != 0){
-									if(!one.isStatic())one.addToPositionY(-intersection.getY()*Math.abs(oneVelocity.getY()/velocityY) - separationY);
-									if(!other.isStatic())other.addToPositionY(intersection.getY()*Math.abs(otherVelocity.getY()/velocityY) + separationY);
-								}else{
-									if(!one.isStatic())one.addToPositionY(-intersection.getY()/2 - separationY);
-									else other.addToPositionY(intersection.getY()/2 + separationY);
-									if(!other.isStatic())other.addToPositionY(intersection.getY()/2 + separationY);
-									else one.addToPositionY(-intersection.getY()/2 - separationY);
-								}
-								intersection.setX(0.0f);
-								if(intersection.getY() == 0.0f){
-									intersection.setY(-1.0f);
-								}
-							}
-							
-							intersection.rotate(angle);
-						    normalAngle = intersection.angle();
-						}
-						
-						colisionPoint = Vector2D.sum(onePoint, otherPoint);
-						colisionPoint.multply(0.5);
-						colisionPoint.rotate(-angle);
-						break;
-					}
-				}
-				
-				if(angle != 0){
-					onePosition.rotate(angle);
-					otherPosition.rotate(angle);
-					oneVelocity.rotate(angle);
-					otherVelocity.rotate(angle);
-				}
-				
-				if(colided){
-					if(one.isRigidBody() && other.isRigidBody()){
-						reacalcVelocities(one, other, normalAngle);
-					}
-					one.colide(other, colisionPoint);
-					other.colide(one, colisionPoint);
-					return true;
-				}
-				
-				return false;
-			}
-		});
-	}
-	
-	public double signum(double value){
-		if(value >= 0.0f){
-			return 1.0f;
+		if(impulseSolver == null){
+			detectTileColisions();
 		}else{
-			return -1.0f;
+			impulseSolver.solve();
+			
+			for(int i = 0; i < scene.getPhysicElements().size(); i++){
+				updatePosition((PhysicElement)scene.getPhysicElements().get(i), time);
+			}
+			detectTileColisions();
+			
+			//O impacto dos projéteis é resolvido no subpasso seguinte
+			sweepBullets(elements);
 		}
 	}
 	
-	
 	/**
-	 * Essa função verifica se um dado ponto se encontra dentro de um determinado retângulo.
+	 * Guarda a posição de cada projétil no início do subpasso, de onde parte a varredura do seu movimento.
 	 */
-	public boolean isPointInRect(Vector2D center, double width, double height, Vector2D point){
-		if(point.getX() < (center.getX() - width/2)){
-			return false;
-		}
-		
-		if(point.getX() > (center.getX() + width/2)){
-			return false;
-		}
-		
-		if(point.getY() < (center.getY() - height/2)){
-			return false;
-		}
-		
-		if(point.getY() > (center.getY() + height/2)){
-			return false;
+	private void saveBulletStarts(){
+		bullets.clear();
+		PhysicElement element = null;
+		for(int i = 0; i < scene.getPhysicElements().size(); i++){
+			element = (PhysicElement)scene.getPhysicElements().get(i);
+			if(element.isBullet() && element.isActive() && !element.isDeleted() && element.isColidable()){
+				if(bullets.size() == bulletStarts.length){
+					bulletStarts = Arrays.copyOf(bulletStarts, Math.max(bulletStarts.length*2, 4));
+				}
+				if(bulletStarts[bullets.size()] == null){
+					bulletStarts[bullets.size()] = new Vector2D();
+				}
+				bulletStarts[bullets.size()].set(element.getPosition());
+				bullets.add(element);
+			}
 		}
-		return true;
 	}
 	
 	/**
-	 * Essa função aplica as novas velocidades após a colisão de dois elementos.
+	 * Varre o movimento de cada projétil desde o início do subpasso e, caso ele tenha atravessado algum elemento, 
+	 * o recua até o instante do impacto. O elemento atingido é considerado parado na posição atual.
 	 */
-	private void reacalcVelocities(PhysicElement one, PhysicElement other, double normalAngle){
-		oneVelocity = one.getVelocity();
-		otherVelocity = other.getVelocity();
+	private void sweepBullets(List<GameElement> elements){
+		if(bullets.isEmpty()){
+			return;
+		}
 		
-		oneVelocity.rotate(-normalAngle);
-		otherVelocity.rotate(-normalAngle);
+		//A árvore só troca de folha os elementos que saíram da caixa engordada, então atualizá-la é mais barato
+		//que varrer cada projétil contra todos os elementos
+		AABBTreeBroadPhase index = broadPhase instanceof AABBTreeBroadPhase ? (AABBTreeBroadPhase)broadPhase : bulletIndex;
+		index.update(elements);
+		bulletTree = index.getTree();
 		
-		elasticity = one.getElasticity() + other.getElasticity();
-		if(one.isStatic()){
-			otherVelocity.setX(-otherVelocity.getX()*elasticity);
-		}else if(other.isStatic()){
-			oneVelocity.setX(-oneVelocity.getX()*elasticity);
-		}else{
-			oneVelocity.setX(((one.getWeight() - other.getWeight())/(one.getWeight() + other.getWeight())*oneVelocity.getX()
-					+ (2*other.getWeight())/(one.getWeight() + other.getWeight())*otherVelocity.getX())*elasticity);
+		PhysicElement bullet = null;
+		for(int i = 0; i < bullets.size(); i++){
+			bullet = bullets.get(i);
+			Vector2D start = bulletStarts[i];
+			bulletStart = start;
+			double dx = bullet.getPosition().getX() - start.getX(),
+				   dy = bullet.getPosition().getY() - start.getY();
+			double distance = Math.sqrt(dx*dx + dy*dy);
+			if(distance < bullet.getRadio() || bullet.isSensor()){
+				continue;
+			}
 			
-			otherVelocity.setX(((other.getWeight() - one.getWeight())/(one.getWeight() + other.getWeight())*other.getVelocity().getX()
-					+ (2*one.getWeight())/(one.getWeight() + other.getWeight())*oneVelocity.getX())*elasticity);
-		}
-		
-		//Apesar de não seguir corretamente a formula do atritito é mais rápido que esta.
-		friction = one.getFriction() + other.getFriction();
-		if(friction > 0){
-			if(!one.isStatic() && friction > 0){
-				oneVelocity.set(oneVelocity.getX(), oneVelocity.getY()*(1 - friction));
+			bulletElement = bullet;
+			bulletTime = 2.0f;
+			double minX = Math.min(start.getX(), bullet.getPosition().getX()) - bullet.getRadio(),
+				   minY = Math.min(start.getY(), bullet.getPosition().getY()) - bullet.getRadio(),
+				   maxX = Math.max(start.getX(), bullet.getPosition().getX()) + bullet.getRadio(),
+				   maxY = Math.max(start.getY(), bullet.getPosition().getY()) + bullet.getRadio();
+			bulletTree.query(minX, minY, maxX, maxY, bulletTreeCallback);
+			if(staticIndex != null){
+				staticIndex.query(minX, minY, maxX, maxY, bulletCallback);
 			}
 			
-			if(!other.isStatic() && friction > 0){
-				otherVelocity.set(otherVelocity.getX(), otherVelocity.getY()*(1 - friction));
+			if(bulletTime <= 1){
+				double time = Math.min(bulletTime + bulletPenetration/distance, 1);
+				bullet.getPosition().set(start.getX() + dx*time, start.getY() + dy*time);
 			}
+			bulletElement = null;
+			bulletStart = null;
 		}
-			
-		oneVelocity.rotate(normalAngle);
-		otherVelocity.rotate(normalAngle);
+		bulletTree = null;
+		bullets.clear();
 	}
 	
 	/**
-	 * Retorna a sena na qual o Simulador está sendo utilizado.
+	 * Calcula o instante do impacto de um projétil com outro elemento, guardando o menor instante encontrado.
+	 * O elemento atingido é tratado como parado, de modo que basta varrer o deslocamento do projétil.
 	 */
-	public Scene getScene() {
-		return scene;
+	private void sweepBullet(PhysicElement bullet, PhysicElement other){
+		if(bullet == other || other.isDeleted() || !other.isColidable() || other.isSensor() || !bullet.canColideWith(other)){
+			return;
+		}
+		
+		Vector2D start = bulletStart;
+		double dx = bullet.getPosition().getX() - start.getX(),
+			   dy = bullet.getPosition().getY() - start.getY();
+		
+		double time = 2.0f;
+		if(bullet.isCompound() || other.isCompound()){
+			//Cada forma filha do projétil parte da sua posição atual recuada pelo deslocamento do projétil
+			bullet.updateChildren();
+			other.updateChildren();
+			for(int i = 0; i < Math.max(bullet.getChildren().size(), 1); i++){
+				PhysicElement bulletShape = bullet.isCompound() ? bullet.getChildren().get(i) : bullet;
+				bulletShapeStart.set(bulletShape.getPosition().getX() - dx, bulletShape.getPosition().getY() - dy);
+				for(int j = 0; j < Math.max(other.getChildren().size(), 1); j++){
+					PhysicElement otherShape = other.isCompound() ? other.getChildren().get(j) : other;
+					if(bulletShape.isColidable() && otherShape.isColidable()){
+						time = Math.min(time, sweepShape(bulletShape, otherShape, bulletShapeStart, dx, dy));
+					}
+				}
+			}
+		}else{
+			time = sweepShape(bullet, other, start, dx, dy);
+		}
+		
+		if(time < bulletTime){
+			bulletTime = time;
+		}
+	}
+	
+	/**
+	 * Retorna o instante do impacto, entre 0 e 1, da forma de um projétil que parte de start com a forma de outro elemento,
+	 * ou 2 caso não a atinja.
+	 */
+	private double sweepShape(PhysicElement bullet, PhysicElement other, Vector2D start, double dx, double dy){
+		double time = 2.0f;
+		if(bullet.getShape() == Shape.POLYGON || other.getShape() == Shape.POLYGON){
+			time = sweepPolygon(bullet, other, start, dx, dy);
+		}else if(bullet.getShape() == Shape.RECTANGLE && other.getShape() == Shape.RECTANGLE){
+			//O primeiro contato entre dois retângulos é sempre de um canto de um deles com uma aresta do outro
+			for(int i = 0; i < rectanglePointAcess.length; i++){
+				onePoint.set(bullet.getCornerX(i), bullet.getCornerY(i));
+				onePoint.addTo(start);
+				time = Math.min(time, sweepPoint(onePoint.getX(), onePoint.getY(), dx, dy, other.getPosition().getX(), other.getPosition().getY(), 
+												 other.getRotationCos(), other.getRotationSin(), other.getWidth()/2, other.getHeight()/2, 0));
+				
+				onePoint.set(other.getCornerX(i), other.getCornerY(i));
+				onePoint.addTo(other.getPosition());
+				time = Math.min(time, sweepPoint(onePoint.getX(), onePoint.getY(), -dx, -dy, start.getX(), start.getY(), 
+												 bullet.getRotationCos(), bullet.getRotationSin(), bullet.getWidth()/2, bullet.getHeight()/2, 0));
+			}
+		}else if(other.getShape() == Shape.RECTANGLE){
+			time = sweepPoint(start.getX(), start.getY(), dx, dy, other.getPosition().getX(), other.getPosition().getY(), 
+							  other.getRotationCos(), other.getRotationSin(), other.getWidth()/2, other.getHeight()/2, bullet.getRadio());
+		}else if(bullet.getShape() == Shape.RECTANGLE){
+			//No sistema do projétil, com o elemento atingido se movendo no sentido contrário
+			time = sweepPoint(other.getPosition().getX(), other.getPosition().getY(), -dx, -dy, start.getX(), start.getY(), 
+							  bullet.getRotationCos(), bullet.getRotationSin(), bullet.getWidth()/2, bullet.getHeight()/2, other.getRadio());
+		}else{
+			time = rayCircleTime(start.getX() - other.getPosition().getX(), start.getY() - other.getPosition().getY(), 
+								 dx, dy, bullet.getRadio() + other.getRadio());
+		}
+		return time;
+	}
+	
+	/**
+	 * Calcula o instante do impacto de um projétil quando um dos elementos é um polígono. Entre polígonos e retângulos
+	 * são varridos os vértices de ambos, e um círculo é varrido contra as arestas do polígono afastadas pelo seu raio.
+	 */
+	private double sweepPolygon(PhysicElement bullet, PhysicElement other, Vector2D start, double dx, double dy){
+		//Deslocamento do projétil da posição atual para a posição inicial
+		double offsetX = start.getX() - bullet.getPosition().getX(),
+			   offsetY = start.getY() - bullet.getPosition().getY();
+		if(bullet.getShape() == Shape.ELIPSE){
+			return rayPolygonTime(other, 0, 0, start.getX(), start.getY(), dx, dy, bullet.getRadio());
+		}
+		if(other.getShape() == Shape.ELIPSE){
+			return rayPolygonTime(bullet, offsetX, offsetY, other.getPosition().getX(), other.getPosition().getY(), -dx, -dy, other.getRadio());
+		}
+		
+		double time = 2.0f;
+		for(int i = 0; i < bullet.getVertexCount(); i++){
+			time = Math.min(time, rayPolygonTime(other, 0, 0, bullet.getVertexX(i) + offsetX, bullet.getVertexY(i) + offsetY, dx, dy, 0));
+		}
+		for(int i = 0; i < other.getVertexCount(); i++){
+			time = Math.min(time, rayPolygonTime(bullet, offsetX, offsetY, other.getVertexX(i), other.getVertexY(i), -dx, -dy, 0));
+		}
+		return time;
+	}
+	
+	/**
+	 * Retorna o instante, entre 0 e 1, em que um raio entra no polígono deslocado por (offsetX, offsetY) e com as arestas
+	 * afastadas pelo raio dado, ou 2 caso não entre ou já parta de dentro. A aresta atingida é guardada em polygonFace.
+	 */
+	private double rayPolygonTime(PhysicElement polygon, double offsetX, double offsetY, double x, double y, double dx, double dy, double radio){
+		double enter = 0, exit = 1;
+		boolean inside = true;
+		for(int i = 0; i < polygon.getVertexCount(); i++){
+			double normalX = polygon.getNormalX(i), normalY = polygon.getNormalY(i),
+				   distance = normalX*(x - polygon.getVertexX(i) - offsetX) + normalY*(y - polygon.getVertexY(i) - offsetY) - radio,
+				   delta = normalX*dx + normalY*dy;
+			if(distance > 0){
+				inside = false;
+			}
+			if(Math.abs(delta) < EPSILON){
+				if(distance > 0){
+					return 2.0f;
+				}
+			}else if(delta < 0){
+				if(-distance/delta > enter){
+					enter = -distance/delta;
+					polygonFace = i;
+				}
+			}else{
+				exit = Math.min(exit, -distance/delta);
+			}
+			if(enter > exit){
+				return 2.0f;
+			}
+		}
+		return inside || polygon.getVertexCount() == 0 ? 2.0f : enter;
+	}
+	
+	/**
+	 * Retorna o instante, entre 0 e 1, em que um ponto que se desloca de (x, y) por (dx, dy) entra em um retângulo
+	 * de cantos arredondados pelo raio dado, ou 2 caso não entre ou já parta de dentro.
+	 */
+	private double sweepPoint(double x, double y, double dx, double dy, double centerX, double centerY, 
+							  double cos, double sin, double halfWidth, double halfHeight, double radio){
+		//Passa para o sistema do retângulo
+		x -= centerX;
+		y -= centerY;
+		double oldX = x, oldDx = dx;
+		x = oldX*cos + y*sin;
+		y = -oldX*sin + y*cos;
+		dx = oldDx*cos + dy*sin;
+		dy = -oldDx*sin + dy*cos;
+		
+		//Elementos que já se tocam são tratados pela detecção normal
+		double outsideX = Math.max(Math.abs(x) - halfWidth, 0), outsideY = Math.max(Math.abs(y) - halfHeight, 0);
+		if(outsideX*outsideX + outsideY*outsideY <= radio*radio){
+			return 2.0f;
+		}
+		
+		double time = rayRectTime(x, y, dx, dy, halfWidth + radio, halfHeight);
+		if(radio > 0){
+			time = Math.min(time, rayRectTime(x, y, dx, dy, halfWidth, halfHeight + radio));
+			for(int i = 0; i < rectanglePointAcess.length; i++){
+				time = Math.min(time, rayCircleTime(x - rectanglePointAcess[i][0]*halfWidth, y - rectanglePointAcess[i][1]*halfHeight, dx, dy, radio));
+			}
+		}
+		return time;
+	}
+	
+	/**
+	 * Retorna o instante, entre 0 e 1, em que um raio que parte de fora entra no retângulo centrado na origem,
+	 * ou 2 caso não entre ou já parta de dentro.
+	 */
+	private double rayRectTime(double x, double y, double dx, double dy, double halfWidth, double halfHeight){
+		double enter = 0, exit = 1;
+		for(int axis = 0; axis < 2; axis++){
+			double position = axis == 0 ? x : y,
+				   delta = axis == 0 ? dx : dy,
+				   half = axis == 0 ? halfWidth : halfHeight;
+			if(Math.abs(delta) < EPSILON){
+				if(position < -half || position > half){
+					return 2.0f;
+				}
+			}else{
+				double first = (-half - position)/delta, 
+					   last = (half - position)/delta;
+				if(first > last){
+					double swap = first;
+					first = last;
+					last = swap;
+				}
+				enter = Math.max(enter, first);
+				exit = Math.min(exit, last);
+				if(enter > exit){
+					return 2.0f;
+				}
+			}
+		}
+		return enter > 0 ? enter : 2.0f;
+	}
+	
+	/**
+	 * Retorna o instante, entre 0 e 1, em que um raio que parte de fora entra no círculo centrado na origem,
+	 * ou 2 caso não entre ou já parta de dentro.
+	 */
+	private double rayCircleTime(double x, double y, double dx, double dy, double radio){
+		double a = dx*dx + dy*dy,
+			   b = 2*(x*dx + y*dy),
+			   c = x*x + y*y - radio*radio;
+		double discriminant = b*b - 4*a*c;
+		if(c <= 0 || discriminant < 0 || a < EPSILON){
+			return 2.0f;
+		}
+		double time = (-b - Math.sqrt(discriminant))/(2*a);
+		return time > 0 && time <= 1 ? time : 2.0f;
+	}
+	
+	/**
+	 * Detecção paralela. Os pares candidatos da fase ampla e do índice estático são coletados e testados em paralelo
+	 * sem alterar os elementos. Sem fase ampla, cada tarefa percorre uma parte do laço de força bruta.
+	 * Por fim, os pares com colisão são agrupados em ilhas de contato, resolvidas em paralelo.
+	 */
+	private void detectParallel(List<GameElement> elements){
+		collectingCandidates = true;
+		candidates.clear();
+		if(broadPhase != null){
+			broadPhase.findPairs(elements, this);
+		}
+		if(staticIndex != null){
+			detectStaticColisions(elements);
+		}
+		collectingCandidates = false;
+		
+		//A base da rotação, os vértices e as formas filhas são calculados sob demanda, então são atualizados aqui
+		//para que as tarefas apenas os leiam
+		PhysicElement element = null;
+		for(int i = 0; i < scene.getPhysicElements().size(); i++){
+			element = (PhysicElement)scene.getPhysicElements().get(i);
+			prepareShape(element);
+			element.updateChildren();
+			for(int j = 0; j < element.getChildren().size(); j++){
+				prepareShape(element.getChildren().get(j));
+			}
+		}
+		
+		//Sem o ImpulseSolver os pares são tratados em sequência pelas ilhas, que testam as formas com as posições já
+		//corrigidas, então os pares da fase ampla vão direto para elas e o resultado é o mesmo do tratamento em série
+		if(impulseSolver == null && broadPhase != null){
+			solveIslands();
+			candidates.clear();
+			return;
+		}
+		
+		parallelElements = broadPhase == null ? elements : null;
+		for(int i = 0; i < tasks.length; i++){
+			tasks[i].reinitialize();
+		}
+		pool.invoke(tasks[0]);
+		parallelElements = null;
+		
+		//O ImpulseSolver resolve todos os contatos juntos, então os contatos calculados pelas tarefas são apenas entregues
+		if(impulseSolver != null){
+			submitContacts();
+			candidates.clear();
+			return;
+		}
+		
+		//Os pares são juntados na ordem das tarefas, que é sempre a mesma para as mesmas entradas
+		candidates.clear();
+		ContactContext context = null;
+		for(int i = 0; i < contexts.length; i++){
+			context = contexts[i];
+			for(int j = 0; j < context.getSize(); j++){
+				candidates.add(context.getOne(j), context.getOther(j));
+			}
+			context.clear();
+		}
+		solveIslands();
+		candidates.clear();
+	}
+	
+	/**
+	 * Entrega ao ImpulseSolver os contatos calculados pelas tarefas, na ordem das tarefas, que é a mesma da detecção em série.
+	 * Um par enviado nos dois sentidos é entregue apenas uma vez.
+	 */
+	private void submitContacts(){
+		ContactContext context = null;
+		PhysicElement one = null, other = null;
+		for(int i = 0; i < contexts.length; i++){
+			context = contexts[i];
+			stats.addPairs(context.getPairs());
+			for(int j = 0; j < context.getSize(); j++){
+				one = context.getOne(j);
+				other = context.getOther(j);
+				serialContext.setContact(context, j);
+				if(one.isSensor() || other.isSensor()){
+					reportColision(one, other, serialContext.colisionPoint, serialContext);
+				}else if(!impulseSolver.contains(one, other)){
+					submitContact(one, other, serialContext);
+				}
+			}
+			context.clear();
+			context.clearContacts();
+		}
+	}
+	
+	/**
+	 * Agrupa os pares com colisão em ilhas de contato e as resolve em paralelo. Os elementos estáticos não unem ilhas,
+	 * pois apenas são lidos no tratamento. Cada ilha trata os seus pares na ordem em que foram encontrados e nenhuma
+	 * ilha altera os corpos de outra, então o resultado é o mesmo do tratamento em série e não depende do número de threads.
+	 * As colisões são informadas depois, na thread do jogo, na ordem das ilhas.
+	 */
+	private void solveIslands(){
+		int size = candidates.getSize();
+		if(size == 0){
+			return;
+		}
+		
+		if(pairIslands.length < size){
+			int capacity = Math.max(size, pairIslands.length*2);
+			islandElements = new PhysicElement[capacity*2];
+			islandParents = new int[capacity*2];
+			islandIds = new int[capacity*2];
+			pairIslands = new int[capacity];
+			islandStarts = new int[capacity + 1];
+			islandPairs = new int[capacity];
+		}
+		
+		//União dos corpos não estáticos de cada par, um par entre estáticos forma uma ilha sozinho
+		islandNodes = 0;
+		int one, other;
+		for(int i = 0; i < size; i++){
+			one = islandNode(candidates.getOne(i));
+			other = islandNode(candidates.getOther(i));
+			if(one < 0 && other < 0){
+				one = islandNode(null);
+			}else if(one < 0){
+				one = other;
+			}else if(other >= 0){
+				uniteIslands(one, other);
+			}
+			pairIslands[i] = one;
+		}
+		
+		//As ilhas são numeradas pela ordem do seu primeiro par e os pares são ordenados por ilha mantendo a ordem original
+		islands = 0;
+		Arrays.fill(islandIds, 0, islandNodes, -1);
+		Arrays.fill(islandStarts, 0, size + 1, 0);
+		for(int i = 0; i < size; i++){
+			one = findIsland(pairIslands[i]);
+			if(islandIds[one] < 0){
+				islandIds[one] = islands++;
+			}
+			pairIslands[i] = islandIds[one];
+			islandStarts[pairIslands[i] + 1]++;
+		}
+		for(int i = 0; i < islands; i++){
+			islandStarts[i + 1] += islandStarts[i];
+		}
+		for(int i = 0; i < size; i++){
+			islandPairs[islandStarts[pairIslands[i]]++] = i;
+		}
+		for(int i = islands; i > 0; i--){
+			islandStarts[i] = islandStarts[i - 1];
+		}
+		islandStarts[0] = 0;
+		
+		solvingIslands = true;
+		for(int i = 0; i < tasks.length; i++){
+			tasks[i].reinitialize();
+		}
+		pool.invoke(tasks[0]);
+		solvingIslands = false;
+		
+		ContactContext context = null;
+		for(int i = 0; i < contexts.length; i++){
+			context = contexts[i];
+			stats.addPairs(context.getPairs());
+			for(int j = 0; j < context.getContacts(); j++){
+				reportColision(context.getContactOne(j), context.getContactOther(j), context.getContactPoint(j), serialContext);
+			}
+			context.clearContacts();
+		}
+		stats.addIslands(islands);
+		
+		for(int i = 0; i < islandNodes; i++){
+			if(islandElements[i] != null){
+				islandElements[i].setIsland(-1);
+				islandElements[i] = null;
+			}
+		}
+	}
+	
+	/**
+	 * Retorna o nó da ilha de um elemento, criando-o no primeiro par do elemento, ou -1 se ele for estático.
+	 * Um elemento nulo cria um nó isolado.
+	 */
+	private int islandNode(PhysicElement element){
+		if(element != null && element.isStatic()){
+			return -1;
+		}
+		if(element != null && element.getIsland() >= 0){
+			return element.getIsland();
+		}
+		islandElements[islandNodes] = element;
+		islandParents[islandNodes] = islandNodes;
+		if(element != null){
+			element.setIsland(islandNodes);
+		}
+		return islandNodes++;
+	}
+	
+	/**
+	 * Retorna a raiz da ilha de um nó, encurtando o caminho percorrido.
+	 */
+	private int findIsland(int node){
+		while(islandParents[node] != node){
+			islandParents[node] = islandParents[islandParents[node]];
+			node = islandParents[node];
+		}
+		return node;
+	}
+	
+	/**
+	 * Une as ilhas de dois nós, mantendo como raiz o menor deles.
+	 */
+	private void uniteIslands(int one, int other){
+		one = findIsland(one);
+		other = findIsland(other);
+		if(one < other){
+			islandParents[other] = one;
+		}else if(other < one){
+			islandParents[one] = other;
+		}
+	}
+	
+	/**
+	 * Resolve as ilhas de uma parte dos pares, guardando no contexto da parte as colisões a serem informadas.
+	 * Cada parte fica com as ilhas que começam no seu trecho da lista de pares ordenada por ilha.
+	 */
+	private void solveChunk(int first, int last){
+		int size = candidates.getSize();
+		for(int chunk = first; chunk < last; chunk++){
+			ContactContext context = contexts[chunk];
+			int start = size*chunk/contexts.length,
+				end = size*(chunk + 1)/contexts.length,
+				island = firstIsland(start);
+			
+			while(island < islands && islandStarts[island] < end){
+				for(int i = islandStarts[island]; i < islandStarts[island + 1]; i++){
+					detectColision(candidates.getOne(islandPairs[i]), candidates.getOther(islandPairs[i]), context);
+				}
+				island++;
+			}
+		}
+	}
+	
+	/**
+	 * Retorna a primeira ilha cujos pares começam na posição dada ou depois dela.
+	 */
+	private int firstIsland(int position){
+		int first = 0, last = islands;
+		while(first < last){
+			int middle = (first + last)/2;
+			if(islandStarts[middle] < position){
+				first = middle + 1;
+			}else{
+				last = middle;
+			}
+		}
+		return first;
+	}
+	
+	/**
+	 * Calcula a base da rotação e os vértices de uma forma.
+	 */
+	private void prepareShape(PhysicElement element){
+		element.getRotationCos();
+		if(element.getShape() == Shape.POLYGON && element.getVertexCount() > 0){
+			element.getVertexX(0);
+		}
+	}
+	
+	/**
+	 * Testa uma parte dos pares, guardando no contexto da parte aqueles cujos raios de colisão se tocam.
+	 * Com o ImpulseSolver o contato de cada par é calculado aqui e guardado junto com ele, pois os elementos não
+	 * são movidos até a resolução. Sem ele, a forma só é testada pelas ilhas, com as posições já corrigidas.
+	 */
+	private void detectChunk(int first, int last){
+		for(int chunk = first; chunk < last; chunk++){
+			ContactContext context = contexts[chunk];
+			PhysicElement one = null;
+			
+			if(parallelElements != null){
+				int size = parallelElements.size();
+				for(int i = size*chunk/contexts.length; i < size*(chunk + 1)/contexts.length; i++){
+					one = (PhysicElement)parallelElements.get(i);
+					if(one.isActive()){
+						for(int j = 0; j < size; j++){
+							detectCandidate(one, (PhysicElement)parallelElements.get(j), context);
+						}
+					}
+				}
+			}
+			
+			int size = candidates.getSize();
+			for(int i = size*chunk/contexts.length; i < size*(chunk + 1)/contexts.length; i++){
+				detectCandidate(candidates.getOne(i), candidates.getOther(i), context);
+			}
+		}
+	}
+	
+	/**
+	 * Testa um par em uma tarefa, guardando-o no contexto com o seu contato ou apenas pelos raios de colisão.
+	 */
+	private void detectCandidate(PhysicElement one, PhysicElement other, ContactContext context){
+		if(!testRadios(one, other, context)){
+			return;
+		}
+		if(impulseSolver == null){
+			context.add(one, other);
+		}else if(findPairContact(one, other, context)){
+			context.addWithContact(one, other);
+		}
+	}
+	
+	/**
+	 * Versão sem efeitos colaterais do teste inicial de detectColision, que verifica se os raios de colisão do par se tocam.
+	 */
+	private boolean testRadios(PhysicElement one, PhysicElement other, ContactContext context){
+		if(!one.canColideWith(other) || (!one.isActive() && !other.isActive())){
+			return false;
+		}
+		
+		context.normal.set(one.getPosition());
+		context.normal.subtractTo(other.getPosition());
+		
+		return context.normal.module() < one.getRadio() + other.getRadio() && one != other && one.isColidable() && other.isColidable()
+			   && !(one.isSensor() && other.isSensor());
+	}
+	
+	/**
+	 * Versão sem efeitos colaterais de detectColision com o ImpulseSolver, que calcula no contexto o contato
+	 * de um par cujos raios de colisão se tocam. Para um sensor, o ponto é a posição do elemento que não é o sensor.
+	 */
+	private boolean findPairContact(PhysicElement one, PhysicElement other, ContactContext context){
+		context.addPair();
+		if(one.isSensor() || other.isSensor()){
+			if(testOverlap(one, other, context)){
+				context.colisionPoint.set(one.isSensor() ? other.getPosition() : one.getPosition());
+				return true;
+			}
+			return false;
+		}
+		if(one.isCompound() || other.isCompound()){
+			return findCompoundContact(one, other, context);
+		}
+		ColisionDetector colisionDetector = getColisionDetector(one.getShape(), other.getShape());
+		return colisionDetector != null && colisionDetector.findContact(one, other, context);
+	}
+	
+	/**
+	 * Verifica se dois elementos cujos raios de colisão se tocam se sobrepõem, testando as formas filhas dos compostos.
+	 */
+	private boolean testOverlap(PhysicElement one, PhysicElement other, ContactContext context){
+		if(!one.isCompound() && !other.isCompound()){
+			return testShapes(one, other, context);
+		}
+		
+		one.updateChildren();
+		other.updateChildren();
+		for(int i = 0; i < Math.max(one.getChildren().size(), 1); i++){
+			PhysicElement oneShape = one.isCompound() ? one.getChildren().get(i) : one;
+			for(int j = 0; j < Math.max(other.getChildren().size(), 1); j++){
+				PhysicElement otherShape = other.isCompound() ? other.getChildren().get(j) : other;
+				if(shapesOverlap(oneShape, otherShape, context) && testShapes(oneShape, otherShape, context)){
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Verifica pelos detectores se duas formas colidem, sem alterá-las.
+	 */
+	private boolean testShapes(PhysicElement one, PhysicElement other, ContactContext context){
+		ColisionDetector detector = getColisionDetector(one.getShape(), other.getShape());
+		if(detector != null && detector.testColision(one, other, context)){
+			return true;
+		}
+		
+		if(one.isStatic() || other.isStatic()){
+			detector = getColisionDetector(other.getShape(), one.getShape());
+			if(detector != null && detector.testColision(other, one, context)){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Retorna se os raios de colisão de duas formas filhas se tocam.
+	 */
+	private boolean shapesOverlap(PhysicElement one, PhysicElement other, ContactContext context){
+		context.normal.set(one.getPosition());
+		context.normal.subtractTo(other.getPosition());
+		return context.normal.module() < one.getRadio() + other.getRadio() && one.isColidable() && other.isColidable();
+	}
+	
+	/**
+	 * Informa uma colisão aos elementos, na hora ou pela fila de eventos. Em um contexto adiado, a colisão apenas é guardada.
+	 */
+	private void reportColision(PhysicElement one, PhysicElement other, Vector2D colisionPoint, ContactContext context){
+		//A colisão de uma forma filha é informada ao elemento composto
+		if(one.getOwner() != null){
+			one = one.getOwner();
+		}
+		if(other.getOwner() != null){
+			other = other.getOwner();
+		}
+		if(context.isDeferred()){
+			context.addContact(one, other, colisionPoint);
+			return;
+		}
+		stats.addContact();
+		if(bufferedEvents){
+			eventQueue.add(one, other, colisionPoint);
+		}else{
+			one.colide(other, colisionPoint);
+			other.colide(one, colisionPoint);
+		}
+	}
+	
+	/**
+	 * Trata um par candidato ou, durante a detecção paralela, o guarda para ser testado pelas tarefas.
+	 */
+	private void colisionCandidate(PhysicElement one, PhysicElement other){
+		if(collectingCandidates){
+			candidates.add(one, other);
+		}else{
+			detectColision(one, other, serialContext);
+		}
+	}
+	
+	/**
+	 * Coloca em repouso os elementos que ficaram abaixo dos limites de velocidade pelo número de simulações necessário
+	 * e conta os elementos em repouso.
+	 */
+	private void updateSleep(){
+		PhysicElement physicElement = null;
+		sleepingElements = 0;
+		if(!sleepEnabled){
+			return;
+		}
+		
+		for(int i = 0; i < scene.getPhysicElements().size(); i++){
+			physicElement = (PhysicElement)scene.getPhysicElements().get(i);
+			if(physicElement.isStatic() || physicElement.isDeleted() || !physicElement.isRigidBody() || !physicElement.isSleepable()){
+				continue;
+			}
+			
+			if(physicElement.isSleeping()){
+				sleepingElements++;
+			}else if(physicElement.getVelocity().module() < linearSleepVelocity 
+					 && Math.abs(physicElement.getRotationVelocity()) < rotationSleepVelocity){
+				physicElement.setSleepTime(physicElement.getSleepTime() + 1);
+				if(physicElement.getSleepTime() >= framesToSleep){
+					physicElement.sleep();
+					sleepingElements++;
+				}
+			}else{
+				physicElement.setSleepTime(0);
+			}
+		}
+	}
+	
+	/**
+	 * Acorda todos os elementos da cena.
+	 */
+	public void wakeUpAll(){
+		if(scene == null){
+			return;
+		}
+		for(int i = 0; i < scene.getPhysicElements().size(); i++){
+			((PhysicElement)scene.getPhysicElements().get(i)).wakeUp();
+		}
+		sleepingElements = 0;
+	}
+	
+	/**
+	 * Acorda os elementos em repouso que tocam as regiões em que o apoio mudou desde a última simulação, como quando
+	 * o chão sob eles é deletado ou movido. Caso tenham ocorrido mais mudanças que as guardadas, acorda todos.
+	 */
+	private void wakeUpUnsupported(){
+		int modifications = scene.getSupportModifications();
+		if(supportVersion == modifications){
+			return;
+		}
+		if(modifications - supportVersion > Scene.SUPPORT_CHANGES){
+			wakeUpAll();
+			supportVersion = modifications;
+			return;
+		}
+		
+		PhysicElement element = null;
+		for(int i = 0; i < scene.getPhysicElements().size(); i++){
+			element = (PhysicElement)scene.getPhysicElements().get(i);
+			if(!element.isSleeping()){
+				continue;
+			}
+			for(int modification = supportVersion; modification != modifications; modification++){
+				//Uma pequena folga para os elementos apenas encostados na região
+				double distanceX = element.getPosition().getX() - scene.getSupportChangeX(modification),
+					   distanceY = element.getPosition().getY() - scene.getSupportChangeY(modification),
+					   distance = element.getRadio() + scene.getSupportChangeRadio(modification) + 1.0f;
+				if(distanceX*distanceX + distanceY*distanceY <= distance*distance){
+					element.wakeUp();
+					break;
+				}
+			}
+		}
+		supportVersion = modifications;
+	}
+	
+	/**
+	 * Acorda os elementos em repouso que tocam as células da camada de blocos alteradas desde a última simulação, 
+	 * como quando o bloco sob eles é removido. Caso toda a camada tenha sido alterada ou tenham ocorrido mais 
+	 * alterações que as guardadas, acorda todos.
+	 */
+	private void wakeUpOnTiles(){
+		if(tileLayer == null || tileVersion == tileLayer.getModifications()){
+			return;
+		}
+		int modifications = tileLayer.getModifications();
+		boolean all = modifications - tileVersion > TileLayer.CHANGES;
+		for(int modification = tileVersion; !all && modification != modifications; modification++){
+			all = tileLayer.getChangedColumn(modification) < 0;
+		}
+		if(all){
+			wakeUpAll();
+			tileVersion = modifications;
+			return;
+		}
+		
+		PhysicElement element = null;
+		double size = tileLayer.getTileSize();
+		for(int i = 0; i < scene.getPhysicElements().size(); i++){
+			element = (PhysicElement)scene.getPhysicElements().get(i);
+			if(!element.isSleeping()){
+				continue;
+			}
+			//Uma pequena folga para os elementos apenas encostados na célula
+			double x = element.getPosition().getX(),
+				   y = element.getPosition().getY(),
+				   radio = element.getRadio() + 1.0f;
+			for(int modification = tileVersion; modification != modifications; modification++){
+				double left = tileLayer.getColumnX(tileLayer.getChangedColumn(modification)),
+					   top = tileLayer.getRowY(tileLayer.getChangedRow(modification));
+				if(x + radio >= left && x - radio <= left + size && y + radio >= top && y - radio <= top + size){
+					element.wakeUp();
+					break;
+				}
+			}
+		}
+		tileVersion = modifications;
+	}
+	
+	/**
+	 * Acorda um elemento em repouso tocado por um elemento ativo.
+	 */
+	private void wakeUpContact(PhysicElement one, PhysicElement other){
+		if(one.isSleeping() && other.isActive()){
+			one.wakeUp();
+		}else if(other.isSleeping() && one.isActive()){
+			other.wakeUp();
+		}
+	}
+	
+	/**
+	 * Retorna os elementos não estáticos da cena, usados quando os estáticos estão no StaticIndex.
+	 */
+	private List<GameElement> getDynamicElements(){
+		dynamicElements.clear();
+		for(int i = 0; i < scene.getPhysicElements().size(); i++){
+			element = scene.getPhysicElements().get(i);
+			if(!((PhysicElement)element).isStatic()){
+				dynamicElements.add(element);
+			}
+		}
+		return dynamicElements;
+	}
+	
+	/**
+	 * Trata a colisão dos corpos ativos com a camada de blocos, consultando apenas as células sobrepostas por cada forma.
+	 */
+	private void detectTileColisions(){
+		if(tileLayer == null){
+			return;
+		}
+		
+		PhysicElement element = null;
+		for(int i = 0; i < scene.getPhysicElements().size(); i++){
+			element = (PhysicElement)scene.getPhysicElements().get(i);
+			if(!element.isActive() || element.isDeleted() || !element.isColidable() 
+			   || (element.getColisionMask() & tileLayer.getColisionCategory()) == 0){
+				continue;
+			}
+			
+			if(!element.isCompound()){
+				detectTileColision(element, element);
+				continue;
+			}
+			for(int j = 0; j < element.getChildren().size(); j++){
+				element.updateChildren();
+				if(element.getChildren().get(j).isColidable()){
+					detectTileColision(element, element.getChildren().get(j));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Trata a colisão de uma forma com as células sólidas que a sua caixa sobrepõe. Cada célula afasta a forma pela 
+	 * menor penetração, ignorando as faces encostadas em outra célula sólida para que a forma não prenda nas junções.
+	 */
+	private void detectTileColision(PhysicElement element, PhysicElement shape){
+		setTileBounds(shape);
+		int firstColumn = Math.max(tileLayer.getColumn(tileMinX), 0),
+			lastColumn = Math.min(tileLayer.getColumn(tileMaxX), tileLayer.getColumns() - 1),
+			firstRow = Math.max(tileLayer.getRow(tileMinY), 0),
+			lastRow = Math.min(tileLayer.getRow(tileMaxY), tileLayer.getRows() - 1);
+		
+		for(int row = firstRow; row <= lastRow; row++){
+			for(int column = firstColumn; column <= lastColumn; column++){
+				if(!tileLayer.isSolid(column, row) || !findTileContact(shape, column, row)){
+					continue;
+				}
+				
+				if(element.isRigidBody() && !element.isSensor()){
+					shape.addToPosition(tileNormalX*(tileDepth + separation), tileNormalY*(tileDepth + separation));
+					
+					//Mesma resposta da colisão com um elemento estático: a elasticidade e o atrito das duas partes são somados
+					Vector2D velocity = element.getVelocity();
+					double normalVelocity = velocity.getX()*tileNormalX + velocity.getY()*tileNormalY;
+					if(normalVelocity < 0){
+						double elasticity = shape.getElasticity() + tileLayer.getElasticity();
+						velocity.addTo(-(1 + elasticity)*normalVelocity*tileNormalX, -(1 + elasticity)*normalVelocity*tileNormalY);
+						normalVelocity = -elasticity*normalVelocity;
+					}
+					double friction = shape.getFriction() + tileLayer.getFriction();
+					if(friction > 0){
+						double tangentX = velocity.getX() - normalVelocity*tileNormalX,
+							   tangentY = velocity.getY() - normalVelocity*tileNormalY;
+						velocity.set(normalVelocity*tileNormalX + tangentX*(1 - friction), normalVelocity*tileNormalY + tangentY*(1 - friction));
+					}
+				}
+				
+				if(tileElements.size()*2 == tileCells.length){
+					tileCells = Arrays.copyOf(tileCells, tileCells.length*2);
+				}
+				tileCells[tileElements.size()*2] = column;
+				tileCells[tileElements.size()*2 + 1] = row;
+				tileElements.add(element);
+				stats.addContact();
+			}
+		}
+	}
+	
+	/**
+	 * Calcula o contato de uma forma com uma célula, guardando a normal da célula para a forma e a profundidade.
+	 * Um círculo com o centro fora da célula é testado contra o ponto mais próximo dela, as demais formas pela sua caixa.
+	 */
+	private boolean findTileContact(PhysicElement shape, int column, int row){
+		double size = tileLayer.getTileSize(),
+			   left = tileLayer.getColumnX(column), top = tileLayer.getRowY(row),
+			   x = shape.getPosition().getX(), y = shape.getPosition().getY();
+		
+		if(shape.getShape() == Shape.ELIPSE && (x < left || x > left + size || y < top || y > top + size)){
+			double dx = x - Math.max(left, Math.min(x, left + size)),
+				   dy = y - Math.max(top, Math.min(y, top + size));
+			//Um canto encostado em outra célula sólida é tratado pela face daquela célula
+			if((dx < 0 && tileLayer.isSolid(column - 1, row)) || (dx > 0 && tileLayer.isSolid(column + 1, row))){
+				dx = 0.0f;
+			}
+			if((dy < 0 && tileLayer.isSolid(column, row - 1)) || (dy > 0 && tileLayer.isSolid(column, row + 1))){
+				dy = 0.0f;
+			}
+			double distance = Math.sqrt(dx*dx + dy*dy);
+			if(distance == 0 || distance >= shape.getRadio()){
+				return false;
+			}
+			tileNormalX = dx/distance;
+			tileNormalY = dy/distance;
+			tileDepth = shape.getRadio() - distance;
+			return true;
+		}
+		
+		setTileBounds(shape);
+		if(tileMaxX <= left || tileMinX >= left + size || tileMaxY <= top || tileMinY >= top + size){
+			return false;
+		}
+		tileDepth = Double.MAX_VALUE;
+		setTileAxis(tileMaxX - left, -1.0f, 0.0f, tileLayer.isSolid(column - 1, row));
+		setTileAxis(left + size - tileMinX, 1.0f, 0.0f, tileLayer.isSolid(column + 1, row));
+		setTileAxis(tileMaxY - top, 0.0f, -1.0f, tileLayer.isSolid(column, row - 1));
+		setTileAxis(top + size - tileMinY, 0.0f, 1.0f, tileLayer.isSolid(column, row + 1));
+		return tileDepth != Double.MAX_VALUE;
+	}
+	
+	/**
+	 * Guarda uma face da célula como a de menor penetração, caso não esteja encostada em outra célula sólida.
+	 */
+	private void setTileAxis(double depth, double normalX, double normalY, boolean blocked){
+		if(!blocked && depth < tileDepth){
+			tileDepth = depth;
+			tileNormalX = normalX;
+			tileNormalY = normalY;
+		}
+	}
+	
+	/**
+	 * Calcula a caixa de uma forma pelos seus vértices, ou pelo raio quando não os tem.
+	 */
+	private void setTileBounds(PhysicElement shape){
+		if(shape.getShape() == Shape.ELIPSE || shape.getVertexCount() == 0){
+			tileMinX = shape.getPosition().getX() - shape.getRadio();
+			tileMinY = shape.getPosition().getY() - shape.getRadio();
+			tileMaxX = shape.getPosition().getX() + shape.getRadio();
+			tileMaxY = shape.getPosition().getY() + shape.getRadio();
+			return;
+		}
+		tileMinX = tileMinY = Double.MAX_VALUE;
+		tileMaxX = tileMaxY = -Double.MAX_VALUE;
+		for(int i = 0; i < shape.getVertexCount(); i++){
+			tileMinX = Math.min(tileMinX, shape.getVertexX(i));
+			tileMinY = Math.min(tileMinY, shape.getVertexY(i));
+			tileMaxX = Math.max(tileMaxX, shape.getVertexX(i));
+			tileMaxY = Math.max(tileMaxY, shape.getVertexY(i));
+		}
+	}
+	
+	/**
+	 * Informa aos elementos as colisões com a camada de blocos guardadas durante a simulação.
+	 */
+	private void dispatchTileColisions(){
+		for(int i = 0; i < tileElements.size(); i++){
+			if(!tileElements.get(i).isDeleted()){
+				tileElements.get(i).tileColide(tileLayer, tileCells[i*2], tileCells[i*2 + 1]);
+			}
+		}
+		tileElements.clear();
+	}
+	
+	/**
+	 * Trata as colisões dos elementos não estáticos com os elementos do StaticIndex.
+	 */
+	private void detectStaticColisions(List<GameElement> elements){
+		PhysicElement dynamicElement = null;
+		double x, y, radio;
+		for(int i = 0; i < elements.size(); i++){
+			dynamicElement = (PhysicElement)elements.get(i);
+			if(dynamicElement.isDeleted() || !dynamicElement.isColidable() || dynamicElement.isSleeping()){
+				continue;
+			}
+			x = dynamicElement.getPosition().getX();
+			y = dynamicElement.getPosition().getY();
+			radio = dynamicElement.getRadio();
+			queryElement = dynamicElement;
+			staticIndex.query(x - radio, y - radio, x + radio, y + radio, staticCallback);
+		}
+		queryElement = null;
+	}
+	
+	/**
+	 * Trata um par candidato enviado pela fase ampla. O par é testado nos dois sentidos para cada elemento não estático,
+	 * da mesma forma que no método de força bruta.
+	 */
+	public void testPair(PhysicElement one, PhysicElement other){
+		if(one.isStatic()){
+			if(!other.isStatic()){
+				colisionCandidate(other, one);
+			}
+		}else{
+			colisionCandidate(one, other);
+			if(!other.isStatic()){
+				colisionCandidate(other, one);
+			}
+		}
+	}
+	/**
+	 * Esta função ordena os elementos a serem simulados com base no valor Y da posição de cada elemento.
+	 */
+	public void sortElementsByPosition(){
+		int j = 0;
+		for(int i = 1; i < scene.getPhysicElements().size(); i++){
+			j = i - 1;
+			oneElement = scene.getPhysicElements().get(i);
+			while(j >= 0 && ((PhysicElement)oneElement).getPosition().getY() > ((PhysicElement)scene.getPhysicElements().get(j)).getPosition().getY()){
+				scene.getPhysicElements().set(j + 1, scene.getPhysicElements().get(j));
+				j--;
+			}
+			scene.getPhysicElements().set(j + 1, oneElement);			
+		}
+	}
+	
+	/**
+	 * Essa função aplica as alterações causadas pela velocidade e acelaração.
+	 */
+	private void update(PhysicElement element, double time){
+		updateVelocity(element, time);
+		updatePosition(element, time);
+	}
+	
+	/**
+	 * Aplica a aceleração e a gravidade na velocidade do elemento.
+	 */
+	private void updateVelocity(PhysicElement element, double time){
+		if(!element.isStatic() && !element.isDeleted() && element.isRigidBody() && !element.isSleeping()){
+			element.getVelocity().addTo(element.getAceleration().getX()*time, element.getAceleration().getY()*time);
+			element.getVelocity().addTo(getGravity().getX()*time, getGravity().getY()*time);
+		}
+	}
+	
+	/**
+	 * Aplica a velocidade e a velocidade de rotação na posição e na rotação do elemento.
+	 */
+	private void updatePosition(PhysicElement element, double time){
+		if(!element.isStatic() && !element.isDeleted() && element.isRigidBody() && !element.isSleeping()){
+			element.addToPosition(element.getVelocity().getX()*time, element.getVelocity().getY()*time);
+			element.addToRotationInRadians(element.getRotationVelocity()*time);
+		}
+	}
+	
+	/**
+	 * Essa função é referente a etapa genéria da detecção de colisão.
+	 */
+	private void detectColision(PhysicElement one, PhysicElement other, ContactContext context){
+		if(!one.canColideWith(other) || (!one.isActive() && !other.isActive())){
+			return;
+		}
+		
+		context.normal.set(one.getPosition());
+		context.normal.subtractTo(other.getPosition());
+
+		if(context.normal.module() < one.getRadio() + other.getRadio() && one != other && one.isColidable() && other.isColidable()){
+			if(context.isDeferred()){
+				context.addPair();
+			}else{
+				stats.addPair();
+			}
+			if(one.isSensor() || other.isSensor()){
+				detectSensor(one, other, context);
+				return;
+			}
+			if(one.isCompound() || other.isCompound()){
+				detectCompoundColision(one, other, context);
+				return;
+			}
+			if(impulseSolver != null){
+				addContact(one, other, context);
+				return;
+			}
+			detectShapes(one, other, context);
+		}
+	}
+	
+	/**
+	 * Trata um par com um sensor, que apenas verifica a sobreposição e informa a colisão, sem separar os elementos
+	 * nem alterar as velocidades. O ponto informado é a posição do elemento que não é o sensor.
+	 */
+	private void detectSensor(PhysicElement one, PhysicElement other, ContactContext context){
+		if(one.isSensor() && other.isSensor()){
+			return;
+		}
+		if(testOverlap(one, other, context)){
+			context.colisionPoint.set(one.isSensor() ? other.getPosition() : one.getPosition());
+			reportColision(one, other, context.colisionPoint, context);
+		}
+	}
+	
+	/**
+	 * Trata a colisão entre duas formas pelos detectores.
+	 */
+	private void detectShapes(PhysicElement one, PhysicElement other, ContactContext context){
+		ColisionDetector colisionDetector  = getColisionDetector(one.getShape(), other.getShape());
+		if(colisionDetector != null){
+			if(colisionDetector.detectColision(one, other, context) == true){
+				wakeUpContact(one, other);
+				return;
+			}
+		}
+		
+		if(one.isStatic() || other.isStatic()){
+			colisionDetector  = getColisionDetector(other.getShape(), one.getShape());
+			if(colisionDetector != null){
+				if(colisionDetector.detectColision(other, one, context) == true){
+					wakeUpContact(one, other);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Trata um par em que ao menos um elemento é composto, testando cada forma filha contra as formas do outro.
+	 * As formas filhas repassam ao dono o deslocamento e a velocidade da colisão. Com o ImpulseSolver, apenas 
+	 * o contato mais profundo entre as formas é entregue, uma vez por par de elementos.
+	 */
+	private void detectCompoundColision(PhysicElement one, PhysicElement other, ContactContext context){
+		if(impulseSolver != null){
+			if(!impulseSolver.contains(one, other) && findCompoundContact(one, other, context)){
+				submitContact(one, other, context);
+			}
+			return;
+		}
+		
+		for(int i = 0; i < Math.max(one.getChildren().size(), 1); i++){
+			for(int j = 0; j < Math.max(other.getChildren().size(), 1); j++){
+				//As formas são reposicionadas a cada teste, pois a colisão anterior pode ter movido o dono
+				one.updateChildren();
+				other.updateChildren();
+				PhysicElement oneShape = one.isCompound() ? one.getChildren().get(i) : one,
+							  otherShape = other.isCompound() ? other.getChildren().get(j) : other;
+				if(shapesOverlap(oneShape, otherShape, context)){
+					detectShapes(oneShape, otherShape, context);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Calcula no contexto o contato mais profundo entre as formas de um par em que ao menos um elemento é composto,
+	 * sem alterar os elementos. Retorna se alguma forma colide.
+	 */
+	private boolean findCompoundContact(PhysicElement one, PhysicElement other, ContactContext context){
+		double normalX = 0.0f, normalY = 0.0f, depth = -1.0f, pointX = 0.0f, pointY = 0.0f;
+		one.updateChildren();
+		other.updateChildren();
+		for(int i = 0; i < Math.max(one.getChildren().size(), 1); i++){
+			for(int j = 0; j < Math.max(other.getChildren().size(), 1); j++){
+				PhysicElement oneShape = one.isCompound() ? one.getChildren().get(i) : one,
+							  otherShape = other.isCompound() ? other.getChildren().get(j) : other;
+				if(!shapesOverlap(oneShape, otherShape, context)){
+					continue;
+				}
+				ColisionDetector colisionDetector = getColisionDetector(oneShape.getShape(), otherShape.getShape());
+				if(colisionDetector != null && colisionDetector.findContact(oneShape, otherShape, context) && context.depth > depth){
+					normalX = context.normalX;
+					normalY = context.normalY;
+					depth = context.depth;
+					pointX = context.colisionPoint.getX();
+					pointY = context.colisionPoint.getY();
+				}
+			}
+		}
+		
+		if(depth < 0){
+			return false;
+		}
+		context.setContact(normalX, normalY, depth, pointX, pointY);
+		return true;
+	}
+	
+	/**
+	 * Calcula o contato de um par e o entrega ao ImpulseSolver, informando a colisão. 
+	 * Cada par é tratado uma única vez por subpasso, mesmo quando enviado nos dois sentidos.
+	 */
+	private void addContact(PhysicElement one, PhysicElement other, ContactContext context){
+		if(impulseSolver.contains(one, other)){
+			return;
+		}
+		ColisionDetector colisionDetector = getColisionDetector(one.getShape(), other.getShape());
+		if(colisionDetector != null && colisionDetector.findContact(one, other, context)){
+			submitContact(one, other, context);
+		}
+	}
+	
+	/**
+	 * Entrega ao ImpulseSolver o contato calculado no contexto, acordando os elementos, e informa a colisão.
+	 */
+	private void submitContact(PhysicElement one, PhysicElement other, ContactContext context){
+		wakeUpContact(one, other);
+		if(one.isRigidBody() && other.isRigidBody()){
+			impulseSolver.add(one, other, context.normalX, context.normalY, context.depth);
+		}
+		reportColision(one, other, context.colisionPoint, context);
+	}
+	
+	/**
+	 * Essa função inicialisa todos os objetos tratadores de colisão.
+	 */
+	private void Initialize(){
+		
+		//ELIPSE x ELIPSE
+		registerColisionDetector(Shape.ELIPSE, Shape.ELIPSE, new ColisionDetector() {
+			@Override
+			public boolean detectColision(PhysicElement one, PhysicElement other, ContactContext context) {
+				if(one.isRigidBody() && other.isRigidBody()){
+					context.normal.set(other.getPosition());
+					context.normal.subtractTo(one.getPosition());
+					setNormal(context.normal.getX(), context.normal.getY(), context);
+					
+					context.oneVelocity.set(one.getVelocity());
+					context.otherVelocity.set(other.getVelocity());
+					
+					context.intersection.set(context.normalX, context.normalY);
+					context.intersection.multply(Math.abs((one.getRadio() + other.getRadio() - context.normal.module())));
+					
+					context.separationX = separation*signum(context.intersection.getX());
+					context.separationY = separation*signum(context.intersection.getY());
+					
+					context.velocityX = Math.abs(context.oneVelocity.getX()) + Math.abs(context.otherVelocity.getX());
+					if(context.velocityX != 0){
+						if(!one.isStatic())one.addToPositionX(-context.intersection.getX()*Math.abs(context.oneVelocity.getX()/context.velocityX) - context.separationX);
+						if(!other.isStatic())other.addToPositionX(context.intersection.getX()*Math.abs(context.otherVelocity.getX()/context.velocityX) + context.separationX);
+					}else{
+						if(!one.isStatic())one.addToPositionX(-context.intersection.getX()/2 - context.separationX);
+						else other.addToPositionX(context.intersection.getX()/2 + context.separationX);
+						if(!other.isStatic())other.addToPositionX(context.intersection.getX()/2 + context.separationX);
+						else one.addToPositionX(-context.intersection.getX()/2 - context.separationX);
+					}
+					
+					context.velocityY = Math.abs(context.oneVelocity.getY()) + Math.abs(context.otherVelocity.getY());
+					if(context.velocityY != 0){
+						if(!one.isStatic())one.addToPositionY(-context.intersection.getY()*Math.abs(context.oneVelocity.getY()/context.velocityY) - context.separationY);
+						if(!other.isStatic())other.addToPositionY(context.intersection.getY()*Math.abs(context.otherVelocity.getY()/context.velocityY) + context.separationY);
+					}else{
+						if(!one.isStatic())one.addToPositionY(-context.intersection.getY()/2 - context.separationY);
+						else other.addToPositionY(context.intersection.getY()/2);
+						if(!other.isStatic())other.addToPositionY(context.intersection.getY()/2 + context.separationY);
+						else one.addToPositionY(-context.intersection.getY()/2 - context.separationY);
+					}
+				}
+				
+				if(one.isRigidBody() && other.isRigidBody()){
+					reacalcVelocities(one, other, context.normalX, context.normalY, context);
+				}
+				
+				context.colisionPoint.set(context.normalX, context.normalY);
+				context.colisionPoint.multply(other.getRadio());
+				context.colisionPoint.addTo(other.getPosition());
+				
+				reportColision(one, other, context.colisionPoint, context);
+					
+				return true;
+			}
+			
+			@Override
+			public boolean testColision(PhysicElement one, PhysicElement other, ContactContext context) {
+				return true;
+			}
+			
+			@Override
+			public boolean findContact(PhysicElement one, PhysicElement other, ContactContext context) {
+				double x = other.getPosition().getX() - one.getPosition().getX(),
+					   y = other.getPosition().getY() - one.getPosition().getY(),
+					   distance = Math.sqrt(x*x + y*y);
+				context.depth = one.getRadio() + other.getRadio() - distance;
+				if(context.depth < 0){
+					return false;
+				}
+				setNormal(x, y, context);
+				context.colisionPoint.set(one.getPosition().getX() + context.normalX*one.getRadio(), 
+										  one.getPosition().getY() + context.normalY*one.getRadio());
+				return true;
+			}
+		});
+		
+		
+		//ELIPSE X RETANGULO
+		registerColisionDetector(Shape.ELIPSE, Shape.RECTANGLE, new ColisionDetector() {
+			@Override
+			public boolean detectColision(PhysicElement one, PhysicElement other, ContactContext context) {
+				return getColisionDetector(other.getShape(), one.getShape()).detectColision(other, one, context);
+			}
+			
+			@Override
+			public boolean testColision(PhysicElement one, PhysicElement other, ContactContext context) {
+				return getColisionDetector(other.getShape(), one.getShape()).testColision(other, one, context);
+			}
+			
+			@Override
+			public boolean findContact(PhysicElement one, PhysicElement other, ContactContext context) {
+				if(getColisionDetector(other.getShape(), one.getShape()).findContact(other, one, context)){
+					context.normalX = -context.normalX;
+					context.normalY = -context.normalY;
+					return true;
+				}
+				return false;
+			}
+		});	
+		
+		//RETANGLULO X ELIPSE
+		registerColisionDetector(Shape.RECTANGLE, Shape.ELIPSE, new ColisionDetector() {
+			@Override
+			public boolean detectColision(PhysicElement one, PhysicElement other, ContactContext context) {				
+				//Trabalha no sistema do retângulo com cópias, sem alterar os vetores dos elementos
+				context.cos = one.getRotationCos();
+				context.sin = one.getRotationSin();
+				toLocal(context.onePosition, one.getPosition(), context);
+				toLocal(context.otherPosition, other.getPosition(), context);
+				toLocal(context.oneVelocity, one.getVelocity(), context);
+				toLocal(context.otherVelocity, other.getVelocity(), context);
+				context.oneDelta.set(0.0f, 0.0f);
+				context.otherDelta.set(0.0f, 0.0f);
+
+				context.colided = false;
+				
+				if(isPointInRect(context.onePosition, one.getWidth() + 2*other.getRadio(), one.getHeight() + 2*other.getRadio(), context.otherPosition)){
+					context.colided = true;
+					
+					context.normal.set(context.onePosition);
+					context.normal.subtractTo(context.otherPosition);
+					context.normalSignalX = signum(context.normal.getX());
+					context.normalSignalY = signum(context.normal.getY());
+					
+					context.onePoint.set(context.onePosition.getX() - context.normalSignalX*(one.getWidth()/2 + other.getRadio()),
+	                                        context.onePosition.getY() - context.normalSignalY*(one.getHeight()/2 + other.getRadio()));
+					
+					context.intersection.set(context.onePoint);
+					context.intersection.subtractTo(context.otherPosition);
+						
+					if(one.isRigidBody() && other.isRigidBody()){
+						
+						context.velocityX = EPSILON;
+						if(Math.signum(context.oneVelocity.getX()) != Math.signum(context.otherVelocity.getX())){
+							context.velocityX = Math.abs(context.oneVelocity.getX() - context.otherVelocity.getX()) + EPSILON;
+						}
+						
+						context.velocityY = EPSILON;
+						if(Math.signum(context.oneVelocity.getY()) != Math.signum(context.otherVelocity.getY())){
+							context.velocityY = Math.abs(context.oneVelocity.getY() - context.otherVelocity.getY()) + EPSILON;
+						}
+						
+						context.timeX = (Math.abs(context.intersection.getX()) + EPSILON)/(context.velocityX);
+						context.timeY = (Math.abs(context.intersection.getY()) + EPSILON)/(context.velocityX);
+						
+						context.separationX = separation*signum(context.intersection.getX());
+						context.separationY = separation*signum(context.intersection.getY());
+						
+						if(context.timeX < context.timeY){
+							context.colisionPoint.set(context.onePoint.getX(), context.otherPosition.getY());
+							context.velocityX = Math.abs(context.oneVelocity.getX()) + Math.abs(context.otherVelocity.getX());
+							if(context.velocityX != 0){
+								if(!one.isStatic())moveX(context.onePosition, context.oneDelta, -context.intersection.getX()*Math.abs(context.oneVelocity.getX()/context.velocityX) - context.separationX);
+								if(!other.isStatic())moveX(context.otherPosition, context.otherDelta, context.intersection.getX()*Math.abs(context.otherVelocity.getX()/context.velocityX) + context.separationX);
+							}else{
+								if(!one.isStatic())moveX(context.onePosition, context.oneDelta, -context.intersection.getX()/2 -context.separationX);
+								else moveX(context.otherPosition, context.otherDelta, context.intersection.getX()/2 + context.separationX);
+								if(!other.isStatic())moveX(context.otherPosition, context.otherDelta, context.intersection.getX()/2 + context.separationX);
+								else moveX(context.onePosition, context.oneDelta, -context.intersection.getX()/2 - context.separationX);
+							}
+							context.intersection.setY(0.0f);
+							if(context.intersection.getX() == 0.0f){
+								context.intersection.setX(1.0f);
+							}
+						}else{
+							context.velocityY = Math.abs(context.oneVelocity.getY()) + Math.abs(context.otherVelocity.getY());
+							if(context.velocityY != 0){
+								if(!one.isStatic())moveY(context.onePosition, context.oneDelta, -context.intersection.getY()*Math.abs(context.oneVelocity.getY()/context.velocityY) - context.separationY);
+								if(!other.isStatic())moveY(context.otherPosition, context.otherDelta, context.intersection.getY()*Math.abs(context.otherVelocity.getY()/context.velocityY) + context.separationY);
+							}else{
+								if(!one.isStatic())moveY(context.onePosition, context.oneDelta, -context.intersection.getY()/2 - context.separationY);
+								else moveY(context.otherPosition, context.otherDelta, context.intersection.getY()/2 + context.separationX);
+								if(!other.isStatic())moveY(context.otherPosition, context.otherDelta, context.intersection.getY()/2 + context.separationY);
+								else moveY(context.onePosition, context.oneDelta, -context.intersection.getY()/2 - context.separationY);
+							}
+							context.intersection.setX(0.0f);
+							if(context.intersection.getY() == 0.0f){
+								context.intersection.setY(-1.0f);
+							}
+						}
+						
+						toWorld(context.intersection, context);
+					    setNormal(context.intersection.getX(), context.intersection.getY(), context);
+					}
+					if(Math.abs(context.intersection.getX()) < Math.abs(context.intersection.getY())){
+						context.colisionPoint.set(context.onePoint.getX(), context.otherPosition.getY());
+					}else{
+						context.colisionPoint.set(context.otherPosition.getX(), context.onePoint.getY());
+					}
+					toWorld(context.colisionPoint, context);
+				}
+				
+				applyDeltas(one, other, context);
+				
+				if(context.colided){
+					reportColision(one, other, context.colisionPoint, context);
+					if(one.isRigidBody() && other.isRigidBody()){
+						reacalcVelocities(one, other, context.normalX, context.normalY, context);
+					}
+					return true;
+				}
+				return false;
+			}
+			
+			@Override
+			public boolean testColision(PhysicElement one, PhysicElement other, ContactContext context) {
+				double cos = one.getRotationCos(), sin = one.getRotationSin();
+				context.onePosition.set(one.getPosition());
+				context.onePosition.rotate(cos, -sin);
+				context.otherPosition.set(other.getPosition());
+				context.otherPosition.rotate(cos, -sin);
+				return isPointInRect(context.onePosition, one.getWidth() + 2*other.getRadio(), one.getHeight() + 2*other.getRadio(), context.otherPosition);
+			}
+			
+			@Override
+			public boolean findContact(PhysicElement one, PhysicElement other, ContactContext context) {
+				//Ponto do retângulo mais próximo do centro do círculo, no sistema do retângulo
+				context.cos = one.getRotationCos();
+				context.sin = one.getRotationSin();
+				context.otherPosition.set(other.getPosition());
+				context.otherPosition.subtractTo(one.getPosition());
+				context.otherPosition.rotate(context.cos, -context.sin);
+				double x = context.otherPosition.getX(),
+					   y = context.otherPosition.getY(),
+					   halfWidth = one.getWidth()/2,
+					   halfHeight = one.getHeight()/2,
+					   closestX = Math.max(-halfWidth, Math.min(x, halfWidth)),
+					   closestY = Math.max(-halfHeight, Math.min(y, halfHeight));
+				
+				if(closestX == x && closestY == y){
+					//Centro dentro do retângulo, sai pelo lado mais próximo
+					if(halfWidth - Math.abs(x) < halfHeight - Math.abs(y)){
+						context.depth = halfWidth - Math.abs(x) + other.getRadio();
+						context.normal.set(signum(x), 0.0f);
+						closestX = signum(x)*halfWidth;
+					}else{
+						context.depth = halfHeight - Math.abs(y) + other.getRadio();
+						context.normal.set(0.0f, signum(y));
+						closestY = signum(y)*halfHeight;
+					}
+				}else{
+					double distance = Math.sqrt((x - closestX)*(x - closestX) + (y - closestY)*(y - closestY));
+					context.depth = other.getRadio() - distance;
+					if(context.depth < 0){
+						return false;
+					}
+					context.normal.set((x - closestX)/distance, (y - closestY)/distance);
+				}
+				
+				toWorld(context.normal, context);
+				context.normalX = context.normal.getX();
+				context.normalY = context.normal.getY();
+				context.colisionPoint.set(closestX, closestY);
+				toWorld(context.colisionPoint, context);
+				context.colisionPoint.addTo(one.getPosition());
+				return true;
+			}
+		});
+		
+		
+		//RETANGULO x RETANGULO
+		registerColisionDetector(Shape.RECTANGLE, Shape.RECTANGLE, new ColisionDetector() {
+			@Override
+			public boolean detectColision(PhysicElement one, PhysicElement other, ContactContext context) {					
+				//Trabalha no sistema do retângulo com cópias, sem alterar os vetores dos elementos
+				context.cos = one.getRotationCos();
+				context.sin = one.getRotationSin();
+				toLocal(context.onePosition, one.getPosition(), context);
+				toLocal(context.otherPosition, other.getPosition(), context);
+				toLocal(context.oneVelocity, one.getVelocity(), context);
+				toLocal(context.otherVelocity, other.getVelocity(), context);
+				context.oneDelta.set(0.0f, 0.0f);
+				context.otherDelta.set(0.0f, 0.0f);
+
+				context.colided = false;
+				context.otherPoint.set(0.0f, 0.0f);
+				for(int i=0;i<rectanglePointAcess.length;i++){
+					
+					//Os cantos do outro retângulo já estão rotacionados no mundo, basta trazê-los para o sistema deste
+					context.otherPoint.set(other.getCornerX(i), other.getCornerY(i));
+					context.otherPoint.rotate(context.cos, -context.sin);
+					context.otherPoint.addTo(context.otherPosition);
+					
+					if(isPointInRect(context.onePosition, one.getWidth(), one.getHeight(), context.otherPoint)){
+						context.colided = true;
+						
+						context.normal.set(context.otherPoint);
+						context.normal.subtractTo(context.otherPosition);
+						context.onePoint.set(context.onePosition.getX() - signum(context.normal.getX())*one.getWidth()/2,
+		                                        context.onePosition.getY() - signum(context.normal.getY())*one.getHeight()/2);
+						
+						if(one.isRigidBody() && other.isRigidBody()){
+							
+							context.intersection.set(context.onePoint);
+							context.intersection.subtractTo(context.otherPoint);
+							
+							context.separationX = separation*signum(context.intersection.getX());
+							context.separationY = separation*signum(context.intersection.getY());
+							
+							context.velocityX = EPSILON;
+							if(Math.signum(context.oneVelocity.getX()) != Math.signum(context.otherVelocity.getX())){
+								context.velocityX = Math.abs(context.oneVelocity.getX() - context.otherVelocity.getX()) + EPSILON;
+							}
+							
+							context.velocityY = EPSILON;
+							if(Math.signum(context.oneVelocity.getY()) != Math.signum(context.otherVelocity.getY())){
+								context.velocityY = Math.abs(context.oneVelocity.getY() - context.otherVelocity.getY()) + EPSILON;
+							}
+							
+							context.timeX = Math.abs(context.intersection.getX() + EPSILON)/context.velocityX;
+							context.timeY = Math.abs(context.intersection.getY() + EPSILON)/context.velocityY;
+							
+							if(context.timeX < context.timeY){
+								context.velocityX = Math.abs(context.oneVelocity.getX()) + Math.abs(context.otherVelocity.getX());
+								if(context.velocityX != 0){
+									if(!one.isStatic())moveX(context.onePosition, context.oneDelta, -context.intersection.getX()*Math.abs(context.oneVelocity.getX()/context.velocityX) - context.separationX);
+									if(!other.isStatic())moveX(context.otherPosition, context.otherDelta, +context.intersection.getX()*Math.abs(context.otherVelocity.getX()/context.velocityX) + context.separationX);
+								}else{
+									if(!one.isStatic())moveX(context.onePosition, context.oneDelta, -context.intersection.getX()/2 - context.separationX);
+									else moveX(context.otherPosition, context.otherDelta, context.intersection.getX()/2 + context.separationX);
+									if(!other.isStatic())moveX(context.otherPosition, context.otherDelta, context.intersection.getX()/2 + context.separationX);
+									else moveX(context.onePosition, context.oneDelta, -context.intersection.getX()/2 - context.separationX);
+								}
+								context.intersection.setY(0.0f);
+								if(context.intersection.getX() == 0.0f){
+									context.intersection.setX(1.0f);
+								}
+							}else{
+								context.velocityY = Math.abs(context.oneVelocity.getY()) + Math.abs(context.otherVelocity.getY());
+								if(context.velocityY != 0){
+									if(!one.isStatic())moveY(context.onePosition, context.oneDelta, -context.intersection.getY()*Math.abs(context.oneVelocity.getY()/context.velocityY) - context.separationY);
+									if(!other.isStatic())moveY(context.otherPosition, context.otherDelta, context.intersection.getY()*Math.abs(context.otherVelocity.getY()/context.velocityY) + context.separationY);
+								}else{
+									if(!one.isStatic())moveY(context.onePosition, context.oneDelta, -context.intersection.getY()/2 - context.separationY);
+									else moveY(context.otherPosition, context.otherDelta, context.intersection.getY()/2 + context.separationY);
+									if(!other.isStatic())moveY(context.otherPosition, context.otherDelta, context.intersection.getY()/2 + context.separationY);
+									else moveY(context.onePosition, context.oneDelta, -context.intersection.getY()/2 - context.separationY);
+								}
+								context.intersection.setX(0.0f);
+								if(context.intersection.getY() == 0.0f){
+									context.intersection.setY(-1.0f);
+								}
+							}
+							
+							toWorld(context.intersection, context);
+						    setNormal(context.intersection.getX(), context.intersection.getY(), context);
+						}
+						
+						context.colisionPoint.set(context.onePoint);
+						context.colisionPoint.addTo(context.otherPoint);
+						context.colisionPoint.multply(0.5);
+						toWorld(context.colisionPoint, context);
+						break;
+					}
+				}
+				
+				applyDeltas(one, other, context);
+				
+				if(context.colided){
+					if(one.isRigidBody() && other.isRigidBody()){
+						reacalcVelocities(one, other, context.normalX, context.normalY, context);
+					}
+					reportColision(one, other, context.colisionPoint, context);
+					return true;
+				}
+				
+				return false;
+			}
+			
+			@Override
+			public boolean testColision(PhysicElement one, PhysicElement other, ContactContext context) {
+				double cos = one.getRotationCos(), sin = one.getRotationSin();
+				context.onePosition.set(one.getPosition());
+				context.onePosition.rotate(cos, -sin);
+				context.otherPosition.set(other.getPosition());
+				context.otherPosition.rotate(cos, -sin);
+				
+				for(int i=0;i<rectanglePointAcess.length;i++){
+					context.point.set(other.getCornerX(i), other.getCornerY(i));
+					context.point.rotate(cos, -sin);
+					context.point.addTo(context.otherPosition);
+					
+					if(isPointInRect(context.onePosition, one.getWidth(), one.getHeight(), context.point)){
+						return true;
+					}
+				}
+				return false;
+			}
+			
+			@Override
+			public boolean findContact(PhysicElement one, PhysicElement other, ContactContext context) {
+				//Separação por eixos, com os eixos dos dois retângulos, escolhendo o de menor penetração
+				double x = other.getPosition().getX() - one.getPosition().getX(),
+					   y = other.getPosition().getY() - one.getPosition().getY();
+				context.depth = Double.MAX_VALUE;
+				boolean oneAxis = true;
+				for(int i = 0; i < 4; i++){
+					PhysicElement element = i < 2 ? one : other;
+					double axisX = i%2 == 0 ? element.getRotationCos() : -element.getRotationSin(),
+						   axisY = i%2 == 0 ? element.getRotationSin() : element.getRotationCos(),
+						   distance = x*axisX + y*axisY,
+						   depth = getProjectedExtent(one, axisX, axisY) + getProjectedExtent(other, axisX, axisY) - Math.abs(distance);
+					if(depth < 0){
+						return false;
+					}
+					if(depth < context.depth){
+						context.depth = depth;
+						context.normalX = axisX*signum(distance);
+						context.normalY = axisY*signum(distance);
+						oneAxis = i < 2;
+					}
+				}
+				
+				//O ponto de contato é o canto mais profundo do retângulo que não deu o eixo
+				PhysicElement element = oneAxis ? other : one;
+				double direction = oneAxis ? -1.0f : 1.0f, maximum = -Double.MAX_VALUE;
+				for(int i = 0; i < rectanglePointAcess.length; i++){
+					double projection = (element.getCornerX(i)*context.normalX + element.getCornerY(i)*context.normalY)*direction;
+					if(projection > maximum){
+						maximum = projection;
+						context.colisionPoint.set(element.getCornerX(i), element.getCornerY(i));
+					}
+				}
+				context.colisionPoint.addTo(element.getPosition());
+				return true;
+			}
+		});
+		
+		
+		//POLIGONO x POLIGONO, POLIGONO x RETANGULO e RETANGULO x POLIGONO
+		ColisionDetector polygonDetector = new ColisionDetector() {
+			@Override
+			public boolean detectColision(PhysicElement one, PhysicElement other, ContactContext context) {
+				return findPolygonContact(one, other, context) && resolveContact(one, other, context);
+			}
+			
+			@Override
+			public boolean testColision(PhysicElement one, PhysicElement other, ContactContext context) {
+				return findPolygonContact(one, other, context);
+			}
+			
+			@Override
+			public boolean findContact(PhysicElement one, PhysicElement other, ContactContext context) {
+				return findPolygonContact(one, other, context);
+			}
+		};
+		registerColisionDetector(Shape.POLYGON, Shape.POLYGON, polygonDetector);
+		registerColisionDetector(Shape.POLYGON, Shape.RECTANGLE, polygonDetector);
+		registerColisionDetector(Shape.RECTANGLE, Shape.POLYGON, polygonDetector);
+		
+		//POLIGONO x ELIPSE
+		registerColisionDetector(Shape.POLYGON, Shape.ELIPSE, new ColisionDetector() {
+			@Override
+			public boolean detectColision(PhysicElement one, PhysicElement other, ContactContext context) {
+				return findContact(one, other, context) && resolveContact(one, other, context);
+			}
+			
+			@Override
+			public boolean testColision(PhysicElement one, PhysicElement other, ContactContext context) {
+				return findContact(one, other, context);
+			}
+			
+			@Override
+			public boolean findContact(PhysicElement one, PhysicElement other, ContactContext context) {
+				return findPolygonCircleContact(one, other.getPosition().getX(), other.getPosition().getY(), other.getRadio(), context);
+			}
+		});
+		
+		//ELIPSE x POLIGONO, invertendo a ordem como em ELIPSE x RETANGULO
+		registerColisionDetector(Shape.ELIPSE, Shape.POLYGON, getColisionDetector(Shape.ELIPSE, Shape.RECTANGLE));
+	}
+	
+	public double signum(double value){
+		if(value >= 0.0f){
+			return 1.0f;
+		}else{
+			return -1.0f;
+		}
+	}
+	
+	
+	/**
+	 * Essa função verifica se um dado ponto se encontra dentro de um determinado retângulo.
+	 */
+	public boolean isPointInRect(Vector2D center, double width, double height, Vector2D point){
+		if(point.getX() < (center.getX() - width/2)){
+			return false;
+		}
+		
+		if(point.getX() > (center.getX() + width/2)){
+			return false;
+		}
+		
+		if(point.getY() < (center.getY() - height/2)){
+			return false;
+		}
+		
+		if(point.getY() > (center.getY() + height/2)){
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Trata uma colisão a partir do contato calculado por findContact, separando os elementos na direção da normal,
+	 * recalculando as velocidades e informando a colisão. Pode ser usado pelos detectores registrados.
+	 */
+	public boolean resolveContact(PhysicElement one, PhysicElement other, ContactContext context){
+		if(one.isRigidBody() && other.isRigidBody()){
+			double x = context.normalX*(context.depth + separation),
+				   y = context.normalY*(context.depth + separation);
+			if(one.isStatic()){
+				other.addToPosition(x, y);
+			}else if(other.isStatic()){
+				one.addToPosition(-x, -y);
+			}else{
+				one.addToPosition(-x/2, -y/2);
+				other.addToPosition(x/2, y/2);
+			}
+			reacalcVelocities(one, other, context.normalX, context.normalY, context);
+		}
+		reportColision(one, other, context.colisionPoint, context);
+		return true;
+	}
+	
+	/**
+	 * Calcula o contato entre dois polígonos convexos, que podem ser retângulos, pela separação das arestas.
+	 * A normal é a da aresta de menor penetração e o ponto é o vértice mais profundo do outro polígono.
+	 */
+	private boolean findPolygonContact(PhysicElement one, PhysicElement other, ContactContext context){
+		context.depth = Double.MAX_VALUE;
+		for(int side = 0; side < 2; side++){
+			PhysicElement face = side == 0 ? one : other, 
+						  opposite = side == 0 ? other : one;
+			for(int i = 0; i < face.getVertexCount(); i++){
+				double normalX = face.getNormalX(i), normalY = face.getNormalY(i),
+					   distance = normalX*face.getVertexX(i) + normalY*face.getVertexY(i),
+					   minimum = Double.MAX_VALUE;
+				int deepest = 0;
+				for(int j = 0; j < opposite.getVertexCount(); j++){
+					double projection = normalX*opposite.getVertexX(j) + normalY*opposite.getVertexY(j) - distance;
+					if(projection < minimum){
+						minimum = projection;
+						deepest = j;
+					}
+				}
+				
+				if(minimum > 0){
+					return false;
+				}
+				if(-minimum < context.depth){
+					//A normal de uma aresta de other aponta para one, então é invertida
+					context.depth = -minimum;
+					context.normalX = side == 0 ? normalX : -normalX;
+					context.normalY = side == 0 ? normalY : -normalY;
+					context.colisionPoint.set(opposite.getVertexX(deepest), opposite.getVertexY(deepest));
+				}
+			}
+		}
+		return context.depth != Double.MAX_VALUE;
+	}
+	
+	/**
+	 * Calcula o contato entre um polígono convexo e um círculo, com a normal do polígono para o círculo.
+	 * O centro do círculo é comparado com a aresta de maior separação e, fora dela, com os seus vértices.
+	 */
+	private boolean findPolygonCircleContact(PhysicElement polygon, double x, double y, double radio, ContactContext context){
+		int count = polygon.getVertexCount(), face = 0;
+		double maximum = -Double.MAX_VALUE;
+		for(int i = 0; i < count; i++){
+			double separation = polygon.getNormalX(i)*(x - polygon.getVertexX(i)) + polygon.getNormalY(i)*(y - polygon.getVertexY(i));
+			if(separation > radio){
+				return false;
+			}
+			if(separation > maximum){
+				maximum = separation;
+				face = i;
+			}
+		}
+		if(count == 0){
+			return false;
+		}
+		
+		double oneX = polygon.getVertexX(face), oneY = polygon.getVertexY(face),
+			   otherX = polygon.getVertexX((face + 1)%count), otherY = polygon.getVertexY((face + 1)%count);
+		if(maximum > 0 && (x - oneX)*(otherX - oneX) + (y - oneY)*(otherY - oneY) <= 0){
+			return findVertexCircleContact(oneX, oneY, x, y, radio, context);
+		}
+		if(maximum > 0 && (x - otherX)*(oneX - otherX) + (y - otherY)*(oneY - otherY) <= 0){
+			return findVertexCircleContact(otherX, otherY, x, y, radio, context);
+		}
+		
+		context.normalX = polygon.getNormalX(face);
+		context.normalY = polygon.getNormalY(face);
+		context.depth = radio - maximum;
+		context.colisionPoint.set(x - context.normalX*maximum, y - context.normalY*maximum);
+		return true;
+	}
+	
+	/**
+	 * Calcula o contato entre um vértice e um círculo, com a normal do vértice para o centro do círculo.
+	 */
+	private boolean findVertexCircleContact(double vertexX, double vertexY, double x, double y, double radio, ContactContext context){
+		double distance = Math.sqrt((x - vertexX)*(x - vertexX) + (y - vertexY)*(y - vertexY));
+		if(distance > radio){
+			return false;
+		}
+		context.depth = radio - distance;
+		setNormal(x - vertexX, y - vertexY, context);
+		context.colisionPoint.set(vertexX, vertexY);
+		return true;
+	}
+	
+	/**
+	 * Retorna a metade da projeção de um retângulo sobre um eixo unitário.
+	 */
+	private double getProjectedExtent(PhysicElement element, double axisX, double axisY){
+		return Math.abs(element.getRotationCos()*axisX + element.getRotationSin()*axisY)*element.getWidth()/2
+			 + Math.abs(-element.getRotationSin()*axisX + element.getRotationCos()*axisY)*element.getHeight()/2;
+	}
+	
+	/**
+	 * Essa função aplica as novas velocidades após a colisão de dois elementos.
+	 */
+	private void reacalcVelocities(PhysicElement one, PhysicElement other, double normalX, double normalY, ContactContext context){
+		context.oneVelocity.set(one.getVelocity());
+		context.otherVelocity.set(other.getVelocity());
+		
+		context.oneVelocity.rotate(normalX, -normalY);
+		context.otherVelocity.rotate(normalX, -normalY);
+		
+		//A restituição só é aplicada enquanto os elementos se aproximam, para que um impacto já desfeito
+		//em um subpasso anterior da mesma simulação não seja refletido de novo
+		context.elasticity = one.getElasticity() + other.getElasticity();
+		if(context.otherVelocity.getX() - context.oneVelocity.getX() < 0){
+			if(one.isStatic()){
+				context.otherVelocity.setX(-context.otherVelocity.getX()*context.elasticity);
+			}else if(other.isStatic()){
+				context.oneVelocity.setX(-context.oneVelocity.getX()*context.elasticity);
+			}else{
+				context.oneVelocity.setX(((one.getWeight() - other.getWeight())/(one.getWeight() + other.getWeight())*context.oneVelocity.getX()
+						+ (2*other.getWeight())/(one.getWeight() + other.getWeight())*context.otherVelocity.getX())*context.elasticity);
+			
+				context.otherVelocity.setX(((other.getWeight() - one.getWeight())/(one.getWeight() + other.getWeight())*context.otherVelocity.getX()
+						+ (2*one.getWeight())/(one.getWeight() + other.getWeight())*context.oneVelocity.getX())*context.elasticity);
+			}
+		}
+		
+		//Apesar de não seguir corretamente a formula do atritito é mais rápido que esta.
+		//O fator é o de uma simulação inteira elevado à fração do subpasso, de modo que n subpassos em contato
+		//removem a mesma parte da velocidade tangencial que uma simulação sem subpassos
+		context.friction = one.getFriction() + other.getFriction();
+		if(context.friction > 0){
+			double factor = Math.max(1 - context.friction, 0);
+			if(stepTime < 1){
+				factor = GameMath.pow(factor, stepTime);
+			}
+			
+			if(!one.isStatic()){
+				context.oneVelocity.set(context.oneVelocity.getX(), context.oneVelocity.getY()*factor);
+			}
+			
+			if(!other.isStatic()){
+				context.otherVelocity.set(context.otherVelocity.getX(), context.otherVelocity.getY()*factor);
+			}
+		}
+			
+		context.oneVelocity.rotate(normalX, normalY);
+		context.otherVelocity.rotate(normalX, normalY);
+		//Os elementos estáticos podem estar em várias ilhas ao mesmo tempo, então apenas são lidos
+		if(!one.isStatic()){
+			one.getVelocity().set(context.oneVelocity);
+		}
+		if(!other.isStatic()){
+			other.getVelocity().set(context.otherVelocity);
+		}
+	}
+	
+	/**
+	 * Copia um vetor do mundo para o sistema do retângulo da colisão atual.
+	 */
+	private void toLocal(Vector2D local, Vector2D world, ContactContext context){
+		local.set(world);
+		local.rotate(context.cos, -context.sin);
+	}
+	
+	/**
+	 * Leva um vetor do sistema do retângulo da colisão atual para o mundo.
+	 */
+	private void toWorld(Vector2D local, ContactContext context){
+		local.rotate(context.cos, context.sin);
+	}
+	
+	/**
+	 * Desloca no eixo x a cópia local da posição de um elemento, acumulando o deslocamento.
+	 */
+	private void moveX(Vector2D position, Vector2D delta, double x){
+		position.addTo(x, 0.0f);
+		delta.addTo(x, 0.0f);
+	}
+	
+	/**
+	 * Desloca no eixo y a cópia local da posição de um elemento, acumulando o deslocamento.
+	 */
+	private void moveY(Vector2D position, Vector2D delta, double y){
+		position.addTo(0.0f, y);
+		delta.addTo(0.0f, y);
+	}
+	
+	/**
+	 * Leva para o mundo os deslocamentos acumulados no sistema do retângulo e os aplica aos elementos.
+	 */
+	private void applyDeltas(PhysicElement one, PhysicElement other, ContactContext context){
+		if(context.oneDelta.getX() != 0 || context.oneDelta.getY() != 0){
+			toWorld(context.oneDelta, context);
+			one.addToPosition(context.oneDelta.getX(), context.oneDelta.getY());
+		}
+		if(context.otherDelta.getX() != 0 || context.otherDelta.getY() != 0){
+			toWorld(context.otherDelta, context);
+			other.addToPosition(context.otherDelta.getX(), context.otherDelta.getY());
+		}
+	}
+	
+	/**
+	 * Seta a normal da colisão atual como o vetor informado normalizado.
+	 */
+	private void setNormal(double x, double y, ContactContext context){
+		double module = Math.sqrt(x*x + y*y);
+		if(module > 0){
+			context.normalX = x/module;
+			context.normalY = y/module;
+		}else{
+			context.normalX = 1.0f;
+			context.normalY = 0.0f;
+		}
+	}
+	
+	/**
+	 * Retorna a sena na qual o Simulador está sendo utilizado.
+	 */
+	public Scene getScene() {
+		return scene;
+	}
+	
+	/**
+	 * Seta a sena na qual o Simulador está sendo utilizado.
+	 */
+	public void setScene(Scene scene) {
+		this.scene = scene;
+		if(scene != null){
+			supportVersion = scene.getSupportModifications();
+		}
+		eventQueue.clear();
+		tileElements.clear();
+		if(navigationGrid != null){
+			navigationGrid.invalidate();
+		}
+		if(impulseSolver != null){
+			impulseSolver.clear();
+		}
+		if(staticIndex != null){
+			staticIndex.invalidate();
+		}
+	}
+	
+	/**
+	 * Retorna a função de tratamento de colisões para um par de formas.
+	 */
+	public ColisionDetector getColisionDetector(Shape one, Shape other){
+		return colisionDetectors[one.ordinal()][other.ordinal()];
+	}
+	
+	/**
+	 * Registra a função de tratamento de colisões para um par de formas, substituindo a atual.
+	 * O detector é chamado com o primeiro elemento na forma one e o segundo na forma other.
+	 */
+	public void registerColisionDetector(Shape one, Shape other, ColisionDetector colisionDetector){
+		colisionDetectors[one.ordinal()][other.ordinal()] = colisionDetector;
 	}
 	
 	/**
-	 * Seta a sena na qual o Simulador está sendo utilizado.
+	 * Retorna a fase ampla usada pelo simulador.
 	 */
-	public void setScene(Scene scene) {
-		this.scene = scene;
+	public BroadPhase getBroadPhase() {
+		return broadPhase;
 	}
 	
 	/**
-	 * Retorna a sena na qual o Simulador está sendo utilizado.
+	 * Seta a fase ampla usada pelo simulador. Nula para usar o método de força bruta.
+	 */
+	public void setBroadPhase(BroadPhase broadPhase) {
+		this.broadPhase = broadPhase;
+	}
+	
+	/**
+	 * Lança um raio do início ao fim informados e guarda em hit o primeiro elemento atingido.
+	 * Apenas elementos colidíveis com categoria na máscara e aceitos pelo filtro, que pode ser nulo, são considerados.
+	 * Retorna se algum elemento foi atingido.
+	 */
+	public boolean raycast(double startX, double startY, double endX, double endY, int mask, QueryFilter filter, RaycastHit hit){
+		if(!startRaycast(startX, startY, endX, endY, mask, filter)){
+			return false;
+		}
+		raycastHit = hit;
+		hit.set(null, endX, endY, 0.0f, 0.0f, 1.0f);
+		queryTree.raycast(startX, startY, endX, endY, raycastCallback);
+		raycastHit = null;
+		queryFilter = null;
+		return hit.getElement() != null;
+	}
+	
+	/**
+	 * Lança um raio do início ao fim informados e guarda em hits todos os elementos atingidos, ordenados pela distância.
+	 * Os acertos são reaproveitados pelo simulador e valem até a próxima chamada. Retorna o número de acertos.
+	 */
+	public int raycastAll(double startX, double startY, double endX, double endY, int mask, QueryFilter filter, List<RaycastHit> hits){
+		hits.clear();
+		if(!startRaycast(startX, startY, endX, endY, mask, filter)){
+			return 0;
+		}
+		raycastHits = hits;
+		queryTree.raycast(startX, startY, endX, endY, raycastCallback);
+		raycastHits = null;
+		queryFilter = null;
+		
+		for(int i = 1; i < hits.size(); i++){
+			RaycastHit hit = hits.get(i);
+			int j = i - 1;
+			while(j >= 0 && hits.get(j).getFraction() > hit.getFraction()){
+				hits.set(j + 1, hits.get(j));
+				j--;
+			}
+			hits.set(j + 1, hit);
+		}
+		return hits.size();
+	}
+	
+	/**
+	 * Guarda em results os elementos que contêm o ponto informado. Retorna o número de elementos encontrados.
+	 */
+	public int queryPoint(double x, double y, int mask, QueryFilter filter, List<PhysicElement> results){
+		queryX = x;
+		queryY = y;
+		return queryRegion(QUERY_POINT, x, y, x, y, mask, filter, results);
+	}
+	
+	/**
+	 * Guarda em results os elementos cuja caixa envolvente sobrepõe a região informada. Retorna o número de elementos encontrados.
+	 */
+	public int queryAABB(double minX, double minY, double maxX, double maxY, int mask, QueryFilter filter, List<PhysicElement> results){
+		return queryRegion(QUERY_AABB, minX, minY, maxX, maxY, mask, filter, results);
+	}
+	
+	/**
+	 * Guarda em results os elementos que tocam o círculo informado. Retorna o número de elementos encontrados.
+	 */
+	public int queryCircle(double x, double y, double radio, int mask, QueryFilter filter, List<PhysicElement> results){
+		queryX = x;
+		queryY = y;
+		queryRadio = radio;
+		return queryRegion(QUERY_CIRCLE, x - radio, y - radio, x + radio, y + radio, mask, filter, results);
+	}
+	
+	/**
+	 * Executa uma consulta de região na árvore de consultas.
+	 */
+	private int queryRegion(int type, double minX, double minY, double maxX, double maxY, int mask, QueryFilter filter, List<PhysicElement> results){
+		results.clear();
+		queryTree = getQueryTree();
+		if(queryTree == null){
+			return 0;
+		}
+		
+		queryType = type;
+		queryMinX = minX;
+		queryMinY = minY;
+		queryMaxX = maxX;
+		queryMaxY = maxY;
+		queryMask = mask;
+		queryFilter = filter;
+		queryResults = results;
+		queryTree.query(minX, minY, maxX, maxY, regionCallback);
+		queryResults = null;
+		queryFilter = null;
+		return results.size();
+	}
+	
+	/**
+	 * Prepara os campos de um raio.
+	 */
+	private boolean startRaycast(double startX, double startY, double endX, double endY, int mask, QueryFilter filter){
+		queryTree = getQueryTree();
+		if(queryTree == null){
+			return false;
+		}
+		rayStartX = startX;
+		rayStartY = startY;
+		rayDirectionX = endX - startX;
+		rayDirectionY = endY - startY;
+		queryMask = mask;
+		queryFilter = filter;
+		return true;
+	}
+	
+	/**
+	 * Retorna a árvore usada nas consultas, atualizando-a caso a cena tenha sido simulada desde a última consulta.
+	 * Quando a fase ampla é uma AABBTreeBroadPhase que vê todos os elementos, a sua árvore é reaproveitada.
+	 */
+	private AABBTree getQueryTree(){
+		if(scene == null){
+			return null;
+		}
+		
+		AABBTreeBroadPhase index = queryIndex;
+		if(broadPhase instanceof AABBTreeBroadPhase && staticIndex == null){
+			index = (AABBTreeBroadPhase)broadPhase;
+		}
+		if(index != lastQueryIndex || querySimulation != simulations){
+			index.update(scene.getPhysicElements());
+			lastQueryIndex = index;
+			querySimulation = simulations;
+		}
+		return index.getTree();
+	}
+	
+	/**
+	 * Retorna se o elemento passa pela máscara e pelo filtro da consulta atual.
+	 */
+	private boolean acceptQuery(PhysicElement element){
+		return !element.isDeleted() && (element.getColisionCategory() & queryMask) != 0 && (queryFilter == null || queryFilter.accept(element));
+	}
+	
+	/**
+	 * Retorna se o elemento contém o ponto.
+	 */
+	private boolean containsPoint(PhysicElement element, double x, double y){
+		if(element.isCompound()){
+			element.updateChildren();
+			for(int i = 0; i < element.getChildren().size(); i++){
+				if(containsPoint(element.getChildren().get(i), x, y)){
+					return true;
+				}
+			}
+			return false;
+		}
+		if(element.getShape() == Shape.ELIPSE){
+			x -= element.getPosition().getX();
+			y -= element.getPosition().getY();
+			return x*x + y*y <= element.getRadio()*element.getRadio();
+		}
+		if(element.getShape() == Shape.POLYGON){
+			for(int i = 0; i < element.getVertexCount(); i++){
+				if(element.getNormalX(i)*(x - element.getVertexX(i)) + element.getNormalY(i)*(y - element.getVertexY(i)) > 0){
+					return false;
+				}
+			}
+			return true;
+		}
+		onePoint.set(x, y);
+		onePoint.rotate(element.getRotationCos(), -element.getRotationSin());
+		otherPoint.set(element.getPosition());
+		otherPoint.rotate(element.getRotationCos(), -element.getRotationSin());
+		return isPointInRect(otherPoint, element.getWidth(), element.getHeight(), onePoint);
+	}
+	
+	/**
+	 * Retorna se o elemento toca o círculo.
+	 */
+	private boolean overlapsCircle(PhysicElement element, double x, double y, double radio){
+		if(element.isCompound()){
+			element.updateChildren();
+			for(int i = 0; i < element.getChildren().size(); i++){
+				if(overlapsCircle(element.getChildren().get(i), x, y, radio)){
+					return true;
+				}
+			}
+			return false;
+		}
+		if(element.getShape() == Shape.POLYGON){
+			return findPolygonCircleContact(element, x, y, radio, serialContext);
+		}
+		x -= element.getPosition().getX();
+		y -= element.getPosition().getY();
+		if(element.getShape() == Shape.ELIPSE){
+			return x*x + y*y <= (radio + element.getRadio())*(radio + element.getRadio());
+		}
+		onePoint.set(x, y);
+		onePoint.rotate(element.getRotationCos(), -element.getRotationSin());
+		double outsideX = Math.max(Math.abs(onePoint.getX()) - element.getWidth()/2, 0),
+			   outsideY = Math.max(Math.abs(onePoint.getY()) - element.getHeight()/2, 0);
+		return outsideX*outsideX + outsideY*outsideY <= radio*radio;
+	}
+	
+	/**
+	 * Retorna a fração do raio atual em que ele atinge o elemento, ou 2 caso não atinja, guardando a normal em otherPoint.
+	 * Raios que partem de dentro do elemento o atingem na fração zero, com a normal contrária ao raio.
+	 */
+	private double raycastElement(PhysicElement element){
+		double length = Math.sqrt(rayDirectionX*rayDirectionX + rayDirectionY*rayDirectionY);
+		if(containsPoint(element, rayStartX, rayStartY)){
+			otherPoint.set(length > 0 ? -rayDirectionX/length : 0.0f, length > 0 ? -rayDirectionY/length : 0.0f);
+			return 0.0f;
+		}
+		if(element.isCompound()){
+			//A fração é a da primeira forma filha atingida, com a sua normal
+			double fraction = 2.0f, normalX = 0.0f, normalY = 0.0f;
+			for(int i = 0; i < element.getChildren().size(); i++){
+				double childFraction = raycastElement(element.getChildren().get(i));
+				if(childFraction < fraction){
+					fraction = childFraction;
+					normalX = otherPoint.getX();
+					normalY = otherPoint.getY();
+				}
+			}
+			otherPoint.set(normalX, normalY);
+			return fraction;
+		}
+		
+		double x = rayStartX - element.getPosition().getX(),
+			   y = rayStartY - element.getPosition().getY();
+		if(element.getShape() == Shape.ELIPSE){
+			double fraction = rayCircleTime(x, y, rayDirectionX, rayDirectionY, element.getRadio());
+			if(fraction <= 1){
+				otherPoint.set((x + rayDirectionX*fraction)/element.getRadio(), (y + rayDirectionY*fraction)/element.getRadio());
+			}
+			return fraction;
+		}
+		if(element.getShape() == Shape.POLYGON){
+			double fraction = rayPolygonTime(element, 0, 0, rayStartX, rayStartY, rayDirectionX, rayDirectionY, 0);
+			if(fraction <= 1){
+				otherPoint.set(element.getNormalX(polygonFace), element.getNormalY(polygonFace));
+			}
+			return fraction;
+		}
+		
+		onePoint.set(x, y);
+		onePoint.rotate(element.getRotationCos(), -element.getRotationSin());
+		otherPoint.set(rayDirectionX, rayDirectionY);
+		otherPoint.rotate(element.getRotationCos(), -element.getRotationSin());
+		double halfWidth = element.getWidth()/2, halfHeight = element.getHeight()/2;
+		double fraction = rayRectTime(onePoint.getX(), onePoint.getY(), otherPoint.getX(), otherPoint.getY(), halfWidth, halfHeight);
+		if(fraction <= 1){
+			//A normal é a do lado do retângulo mais próximo do ponto atingido
+			double hitX = onePoint.getX() + otherPoint.getX()*fraction,
+				   hitY = onePoint.getY() + otherPoint.getY()*fraction;
+			if(Math.abs(Math.abs(hitX) - halfWidth) < Math.abs(Math.abs(hitY) - halfHeight)){
+				otherPoint.set(signum(hitX), 0.0f);
+			}else{
+				otherPoint.set(0.0f, signum(hitY));
+			}
+			otherPoint.rotate(element.getRotationCos(), element.getRotationSin());
+		}
+		return fraction;
+	}
+	
+	/**
+	 * Retorna um hash do estado da simulação, calculado sobre os bits exatos da posição, velocidade e rotação 
+	 * de cada elemento, na ordem da cena. Duas simulações determinísticas com as mesmas entradas têm o mesmo hash.
+	 */
+	public long getStateHash(){
+		long hash = 0xcbf29ce484222325L;
+		if(scene == null){
+			return hash;
+		}
+		
+		PhysicElement element = null;
+		for(int i = 0; i < scene.getPhysicElements().size(); i++){
+			element = (PhysicElement)scene.getPhysicElements().get(i);
+			hash = hash(hash, Double.doubleToLongBits(element.getPosition().getX()));
+			hash = hash(hash, Double.doubleToLongBits(element.getPosition().getY()));
+			hash = hash(hash, Double.doubleToLongBits(element.getVelocity().getX()));
+			hash = hash(hash, Double.doubleToLongBits(element.getVelocity().getY()));
+			hash = hash(hash, Double.doubleToLongBits(element.getRotation()));
+			hash = hash(hash, Double.doubleToLongBits(element.getRotationVelocity()));
+		}
+		return hash;
+	}
+	
+	/**
+	 * Mistura um valor ao hash do estado.
+	 */
+	private long hash(long hash, long value){
+		hash ^= value;
+		hash *= 0x100000001b3L;
+		return hash ^ (hash >>> 29);
+	}
+	
+	/**
+	 * Guarda no histórico o estado dos elementos da cena junto com os pares em contato da fila de eventos 
+	 * e os impulsos do warm starting do ImpulseSolver.
+	 */
+	public void saveHistory(PhysicHistory history){
+		if(scene == null){
+			return;
+		}
+		history.save(scene.getPhysicElements(), eventQueue, impulseSolver);
+	}
+	
+	/**
+	 * Volta a simulação ao estado guardado no histórico há um certo número de quadros, sendo zero o quadro mais recente.
+	 * Além dos elementos, restaura os pares em contato da fila de eventos, de modo que os eventos de início e fim
+	 * sejam despachados como na primeira vez, e os impulsos do warm starting do ImpulseSolver, de modo que a resolução 
+	 * seja repetida exatamente. As colisões com a camada de tiles pendentes são descartadas.
+	 * Retorna se o quadro existia.
+	 */
+	public boolean restoreHistory(PhysicHistory history, int framesAgo){
+		if(scene == null || !history.restore(framesAgo, scene.getPhysicElements(), eventQueue, impulseSolver)){
+			return false;
+		}
+		tileElements.clear();
+		
+		//As mudanças feitas pela própria volta não acordam os elementos, que já estão no estado guardado
+		supportVersion = scene.getSupportModifications();
+		return true;
+	}
+	
+	/**
+	 * Retorna as estatísticas da última simulação.
 	 */
-	private String getHashCode(Shape one, Shape other){
-		return one.toString() + other.toString();
+	public PhysicStats getStats() {
+		return stats;
+	}
+	
+	/**
+	 * Retorna o número mínimo de subpassos por simulação.
+	 */
+	public int getMinimumSubsteps() {
+		return minimumSubsteps;
+	}
+
+	/**
+	 * Seta o número mínimo de subpassos por simulação.
+	 */
+	public void setMinimumSubsteps(int minimumSubsteps) {
+		this.minimumSubsteps = minimumSubsteps;
+	}
+
+	/**
+	 * Retorna o número máximo de subpassos por simulação.
+	 */
+	public int getMaximumSubsteps() {
+		return maximumSubsteps;
+	}
+
+	/**
+	 * Seta o número máximo de subpassos por simulação. Com um máximo maior que o mínimo, o número de subpassos 
+	 * é escolhido a cada simulação pelo corpo mais rápido, de modo que cenas calmas custem um único passo.
+	 */
+	public void setMaximumSubsteps(int maximumSubsteps) {
+		this.maximumSubsteps = maximumSubsteps;
+	}
+
+	/**
+	 * Retorna o deslocamento máximo de um corpo em um subpasso, em proporção ao seu raio.
+	 */
+	public double getSubstepDisplacement() {
+		return substepDisplacement;
+	}
+
+	/**
+	 * Seta o deslocamento máximo de um corpo em um subpasso, em proporção ao seu raio.
+	 */
+	public void setSubstepDisplacement(double substepDisplacement) {
+		this.substepDisplacement = substepDisplacement;
+	}
+	
+	/**
+	 * Retorna se as colisões são informadas pela fila de eventos.
+	 */
+	public boolean isBufferedEvents() {
+		return bufferedEvents;
+	}
+	
+	/**
+	 * Seta se as colisões são informadas pela fila de eventos. Com a fila, colide é chamado uma única vez por par
+	 * a cada quadro, depois de todas as colisões serem resolvidas, e os eventos de início e fim de contato ficam disponíveis.
+	 * Sem a fila, que é o padrão, colide é chamado durante a detecção, como nas versões anteriores.
+	 */
+	public void setBufferedEvents(boolean bufferedEvents) {
+		this.bufferedEvents = bufferedEvents;
+		eventQueue.clear();
+	}
+	
+	/**
+	 * Retorna a fila de eventos de contato.
+	 */
+	public ContactEventQueue getEventQueue() {
+		return eventQueue;
+	}
+	
+	/**
+	 * Retorna o número de threads usadas na detecção de colisões.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * Seta o número de threads usadas no tratamento de colisões. Com mais de uma thread os pares são testados
+	 * em paralelo com as posições do início da detecção e as colisões encontradas são tratadas em seguida,
+	 * com as ilhas de contato independentes resolvidas em paralelo e os eventos informados na thread do jogo,
+	 * em ordem determinística.
+	 */
+	public void setParallelism(int parallelism) {
+		if(pool != null){
+			pool.shutdown();
+			pool = null;
+		}
+		
+		this.parallelism = Math.max(parallelism, 1);
+		if(this.parallelism > 1){
+			pool = new ForkJoinPool(this.parallelism);
+			contexts = new ContactContext[this.parallelism*4];
+			for(int i = 0; i < contexts.length; i++){
+				contexts[i] = new ContactContext(true);
+			}
+			List<DetectionTask> taskList = new ArrayList<DetectionTask>();
+			createTasks(0, contexts.length, taskList);
+			tasks = taskList.toArray(new DetectionTask[taskList.size()]);
+		}else{
+			contexts = new ContactContext[0];
+			tasks = new DetectionTask[0];
+		}
+	}
+	
+	/**
+	 * Cria a árvore de tarefas da detecção paralela, dividindo as partes ao meio até que cada folha tenha uma parte.
+	 */
+	private DetectionTask createTasks(int first, int last, List<DetectionTask> taskList){
+		DetectionTask task = new DetectionTask(first, last);
+		taskList.add(task);
+		if(last - first > 1){
+			int middle = (first + last)/2;
+			task.one = createTasks(first, middle, taskList);
+			task.other = createTasks(middle, last, taskList);
+		}
+		return task;
+	}
+	
+	/**
+	 * Retorna o resolvedor iterativo de contatos.
+	 */
+	public ImpulseSolver getImpulseSolver() {
+		return impulseSolver;
+	}
+	
+	/**
+	 * Seta o resolvedor iterativo de contatos, que passa a resolver as colisões entre corpos rígidos no lugar
+	 * do tratamento de cada detector. Nulo para voltar ao tratamento dos detectores.
+	 */
+	public void setImpulseSolver(ImpulseSolver impulseSolver) {
+		if(this.impulseSolver != null){
+			this.impulseSolver.clear();
+		}
+		this.impulseSolver = impulseSolver;
+	}
+	
+	/**
+	 * Retorna o índice dos elementos estáticos.
+	 */
+	public StaticIndex getStaticIndex() {
+		return staticIndex;
+	}
+	
+	/**
+	 * Seta o índice dos elementos estáticos. Quando setado, os elementos estáticos deixam de ser enviados à fase ampla
+	 * e são consultados no índice, que só é reconstruído quando algum elemento estático é alterado.
+	 */
+	public void setStaticIndex(StaticIndex staticIndex) {
+		this.staticIndex = staticIndex;
+		if(staticIndex != null){
+			staticIndex.invalidate();
+		}
+	}
+	
+	/**
+	 * Retorna a camada de blocos da simulação.
+	 */
+	public TileLayer getTileLayer() {
+		return tileLayer;
+	}
+	
+	/**
+	 * Seta a camada de blocos. Os corpos ativos são testados apenas contra as células que sobrepõem, em vez de contra 
+	 * um elemento estático por bloco. Projéteis não são varridos contra a camada.
+	 */
+	public void setTileLayer(TileLayer tileLayer) {
+		this.tileLayer = tileLayer;
+		tileElements.clear();
+		if(tileLayer != null){
+			tileVersion = tileLayer.getModifications();
+		}
+	}
+	
+	/**
+	 * Retorna a grade de navegação da simulação.
+	 */
+	public NavigationGrid getNavigationGrid() {
+		return navigationGrid;
+	}
+	
+	/**
+	 * Seta a grade de navegação. Ao fim de cada simulação a grade é atualizada com os elementos estáticos da cena 
+	 * e a camada de blocos, e os pedidos de caminho são processados até o limite de células por quadro.
+	 */
+	public void setNavigationGrid(NavigationGrid navigationGrid) {
+		this.navigationGrid = navigationGrid;
+		if(navigationGrid != null){
+			navigationGrid.invalidate();
+		}
 	}
 	
 	/**
@@ -586,13 +2994,84 @@ public class PhysicSimulator {
 	 * Seta a gravidade que deve ser aplicada.
 	 */
 	public void setGravity(Vector2D gravity) {
-		this.gravity.set(gravity);
+		setGravity(gravity.getX(), gravity.getY());
 	}
 	
 	/**
 	 * Seta a gravidade que deve ser aplicada.
 	 */
 	public void setGravity(double x, double y) {
+		if(gravity.getX() != x || gravity.getY() != y){
+			wakeUpAll();
+		}
 		this.gravity.set(x, y);
 	}
+	
+	/**
+	 * Retorna se os elementos podem entrar em repouso.
+	 */
+	public boolean isSleepEnabled() {
+		return sleepEnabled;
+	}
+	
+	/**
+	 * Seta se os elementos podem entrar em repouso. Elementos em repouso não são integrados nem testados entre si
+	 * ou com elementos estáticos, sendo acordados ao serem tocados por um elemento ativo, ao terem a velocidade ou
+	 * posição alteradas ou quando a gravidade muda.
+	 */
+	public void setSleepEnabled(boolean sleepEnabled) {
+		this.sleepEnabled = sleepEnabled;
+		if(!sleepEnabled){
+			wakeUpAll();
+		}
+	}
+	
+	/**
+	 * Retorna a velocidade abaixo da qual um elemento pode entrar em repouso.
+	 */
+	public double getLinearSleepVelocity() {
+		return linearSleepVelocity;
+	}
+	
+	/**
+	 * Seta a velocidade abaixo da qual um elemento pode entrar em repouso.
+	 */
+	public void setLinearSleepVelocity(double linearSleepVelocity) {
+		this.linearSleepVelocity = linearSleepVelocity;
+	}
+	
+	/**
+	 * Retorna a velocidade de rotação, em radianos, abaixo da qual um elemento pode entrar em repouso.
+	 */
+	public double getRotationSleepVelocity() {
+		return rotationSleepVelocity;
+	}
+	
+	/**
+	 * Seta a velocidade de rotação, em radianos, abaixo da qual um elemento pode entrar em repouso.
+	 */
+	public void setRotationSleepVelocity(double rotationSleepVelocity) {
+		this.rotationSleepVelocity = rotationSleepVelocity;
+	}
+	
+	/**
+	 * Retorna o número de simulações abaixo dos limites necessárias para que um elemento entre em repouso.
+	 */
+	public int getFramesToSleep() {
+		return framesToSleep;
+	}
+	
+	/**
+	 * Seta o número de simulações abaixo dos limites necessárias para que um elemento entre em repouso.
+	 */
+	public void setFramesToSleep(int framesToSleep) {
+		this.framesToSleep = framesToSleep;
+	}
+	
+	/**
+	 * Retorna o número de elementos em repouso na última simulação.
+	 */
+	public int getSleepingElements() {
+		return sleepingElements;
+	}
 }
@@ -0,0 +1,123 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+/**
+ * Estatísticas da última simulação do PhysicSimulator.
+ * @author Willians Magalhães Primo
+ */
+public class PhysicStats {
+	private int substeps = 0,
+				pairs = 0,
+				contacts = 0,
+				islands = 0,
+				sleepingElements = 0;
+	
+	/**
+	 * Zera as estatísticas, no início de cada simulação.
+	 */
+	public void clear(){
+		substeps = 0;
+		pairs = 0;
+		contacts = 0;
+		islands = 0;
+		sleepingElements = 0;
+	}
+	
+	/**
+	 * Conta um par que passou pelo teste de raio e foi enviado ao tratador de colisão.
+	 */
+	public void addPair(){
+		pairs++;
+	}
+	
+	/**
+	 * Conta os pares tratados por uma tarefa da simulação paralela.
+	 */
+	public void addPairs(int pairs){
+		this.pairs += pairs;
+	}
+	
+	/**
+	 * Conta as ilhas de contato resolvidas em um subpasso da simulação paralela.
+	 */
+	public void addIslands(int islands){
+		this.islands += islands;
+	}
+	
+	/**
+	 * Conta uma colisão encontrada.
+	 */
+	public void addContact(){
+		contacts++;
+	}
+
+	/**
+	 * Retorna o número de ilhas de contato resolvidas na simulação, somado entre os subpassos.
+	 */
+	public int getIslands() {
+		return islands;
+	}
+
+	/**
+	 * Retorna o número de subpassos usados na simulação.
+	 */
+	public int getSubsteps() {
+		return substeps;
+	}
+
+	/**
+	 * Seta o número de subpassos usados na simulação.
+	 */
+	public void setSubsteps(int substeps) {
+		this.substeps = substeps;
+	}
+
+	/**
+	 * Retorna o número de pares enviados aos tratadores de colisão, somando todos os subpassos.
+	 */
+	public int getPairs() {
+		return pairs;
+	}
+
+	/**
+	 * Retorna o número de colisões encontradas, somando todos os subpassos.
+	 */
+	public int getContacts() {
+		return contacts;
+	}
+
+	/**
+	 * Retorna o número de elementos em repouso ao fim da simulação.
+	 */
+	public int getSleepingElements() {
+		return sleepingElements;
+	}
+
+	/**
+	 * Seta o número de elementos em repouso ao fim da simulação.
+	 */
+	public void setSleepingElements(int sleepingElements) {
+		this.sleepingElements = sleepingElements;
+	}
+}
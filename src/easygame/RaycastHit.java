@@ -0,0 +1,72 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+/**
+ * Resultado de um raio lançado pelo PhysicSimulator.
+ * @author Willians Magalhães Primo
+ */
+public class RaycastHit {
+	private PhysicElement element = null;
+	private Vector2D point = new Vector2D(),
+					 normal = new Vector2D();
+	private double fraction = 0.0f;
+	
+	/**
+	 * Seta os dados do acerto.
+	 */
+	public void set(PhysicElement element, double pointX, double pointY, double normalX, double normalY, double fraction){
+		this.element = element;
+		this.point.set(pointX, pointY);
+		this.normal.set(normalX, normalY);
+		this.fraction = fraction;
+	}
+	
+	/**
+	 * Retorna o elemento atingido.
+	 */
+	public PhysicElement getElement() {
+		return element;
+	}
+	
+	/**
+	 * Retorna o ponto em que o raio atinge o elemento.
+	 */
+	public Vector2D getPoint() {
+		return point;
+	}
+	
+	/**
+	 * Retorna a normal da superfície do elemento no ponto atingido.
+	 */
+	public Vector2D getNormal() {
+		return normal;
+	}
+	
+	/**
+	 * Retorna a fração do raio, entre 0 e 1, em que ocorre o acerto.
+	 */
+	public double getFraction() {
+		return fraction;
+	}
+}
@@ -58,6 +58,15 @@ public abstract class Scene{
 	private MotionEvent lastEvent1 = null;
 	private MotionEvent lastEvent2 = null;
 	
+	//Contador de alterações nos elementos estáticos da cena, usado para reconstruir o StaticIndex apenas quando necessário
+	private int staticModifications = 0;
+	
+	//Regiões em que elementos deixaram de apoiar outros, guardadas em anel com o centro e o raio de cada uma,
+	//para que o simulador acorde os elementos em repouso sobre elas. O tamanho do anel é uma potência de dois
+	public static final int SUPPORT_CHANGES = 256;
+	private double[] supportChanges = new double[SUPPORT_CHANGES*3];
+	private int supportModifications = 0;
+	
 	/**
 	 * Função de carregamento da Cena.
 	 */
@@ -132,6 +141,9 @@ public abstract class Scene{
 				element = elements.get(i);
 				if(!element.isDeleted() && element instanceof DrawableElement){
 					drawProperties.set(element);
+					if(element instanceof PhysicElement){
+						interpolate((PhysicElement)element, drawProperties);
+					}
 					getCamera().changePropertiesToScreem(drawProperties);
 					((DrawableElement)element).draw(drawProperties, canvas, camera);
 				}
@@ -140,6 +152,27 @@ public abstract class Scene{
 		}
 	}
 	
+	/**
+	 * Mistura o estado anterior e o atual do elemento de acordo com a interpolação do GameView.
+	 */
+	private void interpolate(PhysicElement element, Properties properties){
+		double alpha = gameView.getInterpolation();
+		Vector2D previous = element.getPreviousPosition();
+		if(alpha >= 1 || previous == null){
+			return;
+		}
+		
+		Vector2D position = properties.getPosition();
+		position.set(previous.getX() + (position.getX() - previous.getX())*alpha, 
+					 previous.getY() + (position.getY() - previous.getY())*alpha);
+		
+		//Rotações que deram a volta não são interpoladas
+		double rotation = properties.getRotation() - element.getPreviousRotation();
+		if(Math.abs(rotation) < Math.PI){
+			properties.setRotation(element.getPreviousRotation() + rotation*alpha);
+		}
+	}
+	
 	/**
 	 * Método que deve ser sobreescrito caso o usuário desejar tratar as atualizações da cena.
 	 */
@@ -574,6 +607,60 @@ public abstract class Scene{
 		return getCamera().toRealHeight(gameView.getHeight());
 	}
 	
+	/**
+	 * Retorna o contador de alterações nos elementos estáticos da cena.
+	 */
+	public int getStaticModifications() {
+		return staticModifications;
+	}
+	
+	/**
+	 * Registra a alteração de um elemento estático da cena. Chamado pelos próprios elementos.
+	 */
+	public void staticChanged() {
+		staticModifications++;
+	}
+	
+	/**
+	 * Retorna o contador de mudanças de apoio, incrementado quando um elemento é deletado, deixa de ser estático
+	 * ou quando um elemento estático é alterado.
+	 */
+	public int getSupportModifications() {
+		return supportModifications;
+	}
+	
+	/**
+	 * Registra uma mudança de apoio em uma região circular da cena. Chamado pelos próprios elementos.
+	 */
+	public void supportChanged(double x, double y, double radio) {
+		int change = (supportModifications & (SUPPORT_CHANGES - 1))*3;
+		supportChanges[change] = x;
+		supportChanges[change + 1] = y;
+		supportChanges[change + 2] = radio;
+		supportModifications++;
+	}
+	
+	/**
+	 * Retorna a coordenada x do centro da região de uma mudança de apoio. Apenas as últimas SUPPORT_CHANGES mudanças são guardadas.
+	 */
+	public double getSupportChangeX(int modification) {
+		return supportChanges[(modification & (SUPPORT_CHANGES - 1))*3];
+	}
+	
+	/**
+	 * Retorna a coordenada y do centro da região de uma mudança de apoio.
+	 */
+	public double getSupportChangeY(int modification) {
+		return supportChanges[(modification & (SUPPORT_CHANGES - 1))*3 + 1];
+	}
+	
+	/**
+	 * Retorna o raio da região de uma mudança de apoio.
+	 */
+	public double getSupportChangeRadio(int modification) {
+		return supportChanges[(modification & (SUPPORT_CHANGES - 1))*3 + 2];
+	}
+	
 	/**
 	 * Retorna a largura da tela.
 	 */
@@ -125,7 +125,7 @@ public class SimpleSprite extends BaseSprite{
 	 * Seta a rotação da Sprite em graus celcios.
 	 */
 	public void setRotationInDegree(double rotation) {
-		this.setRotationInRadians(Math.toRadians(rotation));
+		this.setRotationInRadians(GameMath.toRadians(rotation));
 	}
 	
 	/**
@@ -0,0 +1,199 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fase ampla baseada em uma grade uniforme (hash espacial). Cada elemento é inserido nas células cobertas
+ * pelo seu raio de colisão e apenas elementos que compartilham uma célula são enviados aos detectores.
+ * @author Willians Magalhães Primo
+ */
+public class SpatialHashBroadPhase implements BroadPhase {
+	private double cellSize = 64.0f;
+	
+	//Estruturas reaproveitadas a cada simulação com a finalidade de não realocar a cada interação
+	private PhysicElement[] elements = new PhysicElement[64];
+	private double[] minX = new double[64],
+					 minY = new double[64],
+					 maxX = new double[64],
+					 maxY = new double[64];
+	
+	private int[] buckets = new int[256],
+				  next = new int[256],
+				  entryElement = new int[256],
+				  entryCellX = new int[256],
+				  entryCellY = new int[256];
+	
+	//Construtores
+	public SpatialHashBroadPhase(){}
+	
+	public SpatialHashBroadPhase(double cellSize){
+		setCellSize(cellSize);
+	}
+	
+	/**
+	 * Encontra os pares candidatos à colisão e os envia ao simulador.
+	 */
+	@Override
+	public void findPairs(List<GameElement> sceneElements, PhysicSimulator simulator){
+		int size = 0;
+		int entries = 0;
+		PhysicElement element = null;
+		
+		ensureElementCapacity(sceneElements.size());
+		for(int i = 0; i < sceneElements.size(); i++){
+			element = (PhysicElement)sceneElements.get(i);
+			if(element.isDeleted() || !element.isColidable()){
+				continue;
+			}
+			elements[size] = element;
+			minX[size] = element.getPosition().getX() - element.getRadio();
+			minY[size] = element.getPosition().getY() - element.getRadio();
+			maxX[size] = element.getPosition().getX() + element.getRadio();
+			maxY[size] = element.getPosition().getY() + element.getRadio();
+			entries += (cell(maxX[size]) - cell(minX[size]) + 1)*(cell(maxY[size]) - cell(minY[size]) + 1);
+			size++;
+		}
+		
+		ensureEntryCapacity(entries);
+		Arrays.fill(buckets, -1);
+		
+		int mask = buckets.length - 1;
+		int entry = 0;
+		for(int i = 0; i < size; i++){
+			for(int x = cell(minX[i]); x <= cell(maxX[i]); x++){
+				for(int y = cell(minY[i]); y <= cell(maxY[i]); y++){
+					int bucket = hash(x, y) & mask;
+					entryElement[entry] = i;
+					entryCellX[entry] = x;
+					entryCellY[entry] = y;
+					next[entry] = buckets[bucket];
+					buckets[bucket] = entry;
+					entry++;
+				}
+			}
+		}
+		
+		for(int bucket = 0; bucket < buckets.length; bucket++){
+			for(int one = buckets[bucket]; one != -1; one = next[one]){
+				for(int other = next[one]; other != -1; other = next[other]){
+					if(entryCellX[one] == entryCellX[other] && entryCellY[one] == entryCellY[other]){
+						testPair(entryElement[one], entryElement[other], entryCellX[one], entryCellY[one], simulator);
+					}
+				}
+			}
+		}
+		
+		//Libera as referências para não impedir a coleta de elementos removidos da cena
+		Arrays.fill(elements, 0, size, null);
+	}
+	
+	/**
+	 * Envia o par ao simulador caso as caixas dos elementos se sobreponham.
+	 * Um par que compartilha várias células é enviado apenas pela célula que contém o canto mínimo da sobreposição.
+	 */
+	private void testPair(int one, int other, int cellX, int cellY, PhysicSimulator simulator){
+		if(!elements[one].canColideWith(elements[other])){
+			return;
+		}
+		
+		if(!elements[one].isActive() && !elements[other].isActive()){
+			return;
+		}
+		
+		if(minX[one] > maxX[other] || minX[other] > maxX[one] || minY[one] > maxY[other] || minY[other] > maxY[one]){
+			return;
+		}
+		
+		if(cell(Math.max(minX[one], minX[other])) != cellX || cell(Math.max(minY[one], minY[other])) != cellY){
+			return;
+		}
+		
+		simulator.testPair(elements[one], elements[other]);
+	}
+	
+	/**
+	 * Retorna a célula correspondente a uma coordenada.
+	 */
+	private int cell(double value){
+		return (int)Math.floor(value/cellSize);
+	}
+	
+	/**
+	 * Retorna o código hash de uma célula.
+	 */
+	private int hash(int x, int y){
+		return (x*73856093) ^ (y*19349663);
+	}
+	
+	/**
+	 * Garante a capacidade dos vetores de elementos.
+	 */
+	private void ensureElementCapacity(int capacity){
+		if(elements.length < capacity){
+			int length = Math.max(capacity, elements.length*2);
+			elements = new PhysicElement[length];
+			minX = new double[length];
+			minY = new double[length];
+			maxX = new double[length];
+			maxY = new double[length];
+		}
+	}
+	
+	/**
+	 * Garante a capacidade dos vetores de entradas, mantendo a tabela hash com o dobro do número de entradas.
+	 */
+	private void ensureEntryCapacity(int capacity){
+		if(next.length < capacity){
+			int length = Math.max(capacity, next.length*2);
+			next = new int[length];
+			entryElement = new int[length];
+			entryCellX = new int[length];
+			entryCellY = new int[length];
+		}
+		
+		if(buckets.length < 2*capacity){
+			int length = buckets.length;
+			while(length < 2*capacity){
+				length *= 2;
+			}
+			buckets = new int[length];
+		}
+	}
+
+	/**
+	 * Retorna o tamanho das células da grade.
+	 */
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Seta o tamanho das células da grade.
+	 */
+	public void setCellSize(double cellSize) {
+		this.cellSize = cellSize;
+	}
+}
@@ -0,0 +1,306 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Índice espacial imutável dos elementos estáticos de uma cena, organizado em uma grade uniforme.
+ * O índice só é reconstruído quando algum elemento estático é adicionado, removido, redimensionado,
+ * movido ou deixa de ser estático, permitindo que os elementos não estáticos o consultem em vez de percorrer
+ * todos os elementos estáticos a cada simulação.
+ * @author Willians Magalhães Primo
+ */
+public class StaticIndex {
+	
+	/**
+	 * Interface usada para receber os elementos encontrados em uma consulta.
+	 * @author Willians Magalhães Primo
+	 */
+	public interface QueryCallback {
+		/**
+		 * Chamado para cada elemento cuja caixa sobrepõe a região consultada. Deve retornar false para interromper a consulta.
+		 */
+		public boolean onElement(PhysicElement element);
+	}
+	
+	private double cellSize = 64.0f;
+	private int maximumCells = 65536;
+	
+	//Grade construída, as células guardam os índices dos elementos de forma compacta
+	private PhysicElement[] elements = new PhysicElement[0];
+	private double[] minX = new double[0],
+					 minY = new double[0],
+					 maxX = new double[0],
+					 maxY = new double[0];
+	private int[] cellStart = new int[1],
+				  cellElements = new int[0],
+				  cellCursor = new int[0],
+				  queryStamp = new int[0];
+	
+	private double originX = 0.0f,
+				   originY = 0.0f,
+				   actualCellSize = 64.0f;
+	private int columns = 0,
+				rows = 0,
+				size = 0,
+				query = 0,
+				version = 0,
+				rebuilds = 0;
+	private boolean valid = false;
+	
+	//Construtores
+	public StaticIndex(){}
+	
+	public StaticIndex(double cellSize){
+		this.cellSize = cellSize;
+	}
+	
+	/**
+	 * Reconstrói o índice caso algum elemento estático tenha sido alterado desde a última construção.
+	 */
+	public void update(Scene scene){
+		if(valid && version == scene.getStaticModifications()){
+			return;
+		}
+		build(scene.getPhysicElements());
+		version = scene.getStaticModifications();
+	}
+	
+	/**
+	 * Força a reconstrução do índice na próxima atualização.
+	 */
+	public void invalidate(){
+		valid = false;
+	}
+	
+	/**
+	 * Constrói o índice com os elementos estáticos da lista.
+	 */
+	public void build(List<GameElement> sceneElements){
+		PhysicElement element = null;
+		double boundsMinX = Double.MAX_VALUE, 
+			   boundsMinY = Double.MAX_VALUE,
+			   boundsMaxX = -Double.MAX_VALUE,
+			   boundsMaxY = -Double.MAX_VALUE;
+		
+		Arrays.fill(elements, null);
+		size = 0;
+		for(int i = 0; i < sceneElements.size(); i++){
+			element = (PhysicElement)sceneElements.get(i);
+			if(!element.isStatic() || element.isDeleted() || !element.isColidable()){
+				continue;
+			}
+			ensureCapacity(size + 1);
+			elements[size] = element;
+			minX[size] = element.getPosition().getX() - element.getRadio();
+			minY[size] = element.getPosition().getY() - element.getRadio();
+			maxX[size] = element.getPosition().getX() + element.getRadio();
+			maxY[size] = element.getPosition().getY() + element.getRadio();
+			boundsMinX = Math.min(boundsMinX, minX[size]);
+			boundsMinY = Math.min(boundsMinY, minY[size]);
+			boundsMaxX = Math.max(boundsMaxX, maxX[size]);
+			boundsMaxY = Math.max(boundsMaxY, maxY[size]);
+			size++;
+		}
+		
+		valid = true;
+		rebuilds++;
+		
+		if(size == 0){
+			columns = 0;
+			rows = 0;
+			return;
+		}
+		
+		//Aumenta o tamanho das células caso a grade ultrapasse o número máximo de células
+		actualCellSize = cellSize;
+		originX = boundsMinX;
+		originY = boundsMinY;
+		columns = (int)((boundsMaxX - boundsMinX)/actualCellSize) + 1;
+		rows = (int)((boundsMaxY - boundsMinY)/actualCellSize) + 1;
+		while((long)columns*rows > maximumCells){
+			actualCellSize *= 2;
+			columns = (int)((boundsMaxX - boundsMinX)/actualCellSize) + 1;
+			rows = (int)((boundsMaxY - boundsMinY)/actualCellSize) + 1;
+		}
+		
+		//Conta os elementos de cada célula e calcula o início de cada uma
+		int cells = columns*rows;
+		if(cellStart.length < cells + 1){
+			cellStart = new int[cells + 1];
+		}
+		Arrays.fill(cellStart, 0, cells + 1, 0);
+		
+		int entries = 0;
+		for(int i = 0; i < size; i++){
+			for(int y = row(minY[i]); y <= row(maxY[i]); y++){
+				for(int x = column(minX[i]); x <= column(maxX[i]); x++){
+					cellStart[y*columns + x + 1]++;
+					entries++;
+				}
+			}
+		}
+		for(int cell = 0; cell < cells; cell++){
+			cellStart[cell + 1] += cellStart[cell];
+		}
+		
+		if(cellElements.length < entries){
+			cellElements = new int[entries];
+		}
+		
+		//Preenche as células
+		if(cellCursor.length < cells){
+			cellCursor = new int[cells];
+		}
+		Arrays.fill(cellCursor, 0, cells, 0);
+		for(int i = 0; i < size; i++){
+			for(int y = row(minY[i]); y <= row(maxY[i]); y++){
+				for(int x = column(minX[i]); x <= column(maxX[i]); x++){
+					int cell = y*columns + x;
+					cellElements[cellStart[cell] + cellCursor[cell]] = i;
+					cellCursor[cell]++;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Consulta os elementos estáticos cujas caixas sobrepõem a região informada.
+	 */
+	public void query(double queryMinX, double queryMinY, double queryMaxX, double queryMaxY, QueryCallback callback){
+		if(size == 0){
+			return;
+		}
+		
+		int firstColumn = Math.max(column(queryMinX), 0);
+		int lastColumn = Math.min(column(queryMaxX), columns - 1);
+		int firstRow = Math.max(row(queryMinY), 0);
+		int lastRow = Math.min(row(queryMaxY), rows - 1);
+		
+		query++;
+		for(int y = firstRow; y <= lastRow; y++){
+			for(int x = firstColumn; x <= lastColumn; x++){
+				int cell = y*columns + x;
+				for(int entry = cellStart[cell]; entry < cellStart[cell + 1]; entry++){
+					int i = cellElements[entry];
+					if(queryStamp[i] == query){
+						continue;
+					}
+					queryStamp[i] = query;
+					
+					if(minX[i] > queryMaxX || maxX[i] < queryMinX || minY[i] > queryMaxY || maxY[i] < queryMinY){
+						continue;
+					}
+					
+					if(!callback.onElement(elements[i])){
+						return;
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Retorna a coluna da grade correspondente a uma coordenada x.
+	 */
+	private int column(double x){
+		return (int)Math.floor((x - originX)/actualCellSize);
+	}
+	
+	/**
+	 * Retorna a linha da grade correspondente a uma coordenada y.
+	 */
+	private int row(double y){
+		return (int)Math.floor((y - originY)/actualCellSize);
+	}
+	
+	/**
+	 * Garante a capacidade dos vetores de elementos.
+	 */
+	private void ensureCapacity(int capacity){
+		if(elements.length < capacity){
+			int length = Math.max(capacity, Math.max(16, elements.length*2));
+			PhysicElement[] newElements = new PhysicElement[length];
+			System.arraycopy(elements, 0, newElements, 0, elements.length);
+			elements = newElements;
+			minX = copyOf(minX, length);
+			minY = copyOf(minY, length);
+			maxX = copyOf(maxX, length);
+			maxY = copyOf(maxY, length);
+			queryStamp = new int[length];
+			query = 0;
+		}
+	}
+	
+	private static double[] copyOf(double[] values, int length){
+		double[] result = new double[length];
+		System.arraycopy(values, 0, result, 0, values.length);
+		return result;
+	}
+	
+	/**
+	 * Retorna o número de elementos estáticos no índice.
+	 */
+	public int getSize() {
+		return size;
+	}
+	
+	/**
+	 * Retorna quantas vezes o índice foi construído.
+	 */
+	public int getRebuilds() {
+		return rebuilds;
+	}
+
+	/**
+	 * Retorna o tamanho desejado para as células da grade.
+	 */
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Seta o tamanho desejado para as células da grade.
+	 */
+	public void setCellSize(double cellSize) {
+		this.cellSize = cellSize;
+		invalidate();
+	}
+
+	/**
+	 * Retorna o número máximo de células da grade.
+	 */
+	public int getMaximumCells() {
+		return maximumCells;
+	}
+
+	/**
+	 * Seta o número máximo de células da grade. Caso a grade ultrapasse esse número, o tamanho das células é aumentado.
+	 */
+	public void setMaximumCells(int maximumCells) {
+		this.maximumCells = maximumCells;
+		invalidate();
+	}
+}
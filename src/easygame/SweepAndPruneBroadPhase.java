@@ -0,0 +1,185 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fase ampla do tipo varredura e poda (sweep and prune) no eixo Y.
+ * Os intervalos dos elementos são mantidos ordenados pelo menor Y entre as simulações, de modo que a ordenação
+ * por inserção encontra a lista quase ordenada e a ordenação e a varredura têm custo próximo de O(n + k),
+ * onde k é o número de pares sobrepostos. Os intervalos com o mesmo menor Y são ordenados pelo código dos elementos,
+ * para que a ordem dos pares dependa apenas das posições atuais, mesmo ao voltar a simulação no tempo.
+ * @author Willians Magalhães Primo
+ */
+public class SweepAndPruneBroadPhase implements BroadPhase {
+	
+	//Intervalos ordenados pelo menor Y, mantidos entre as simulações. Cada elemento guarda a posição do seu intervalo
+	private PhysicElement[] elements = new PhysicElement[64];
+	private double[] minX = new double[64],
+					 minY = new double[64],
+					 maxX = new double[64],
+					 maxY = new double[64];
+	private int[] proxyFrame = new int[64];
+	private int size = 0,
+				frame = 0;
+	
+	/**
+	 * Atualiza os intervalos, reordena-os e envia os pares candidatos ao simulador.
+	 */
+	@Override
+	public void findPairs(List<GameElement> sceneElements, PhysicSimulator simulator){
+		update(sceneElements);
+		
+		for(int i = 0; i < size; i++){
+			for(int j = i + 1; j < size && minY[j] <= maxY[i]; j++){
+				if(minX[i] > maxX[j] || minX[j] > maxX[i]){
+					continue;
+				}
+				if(!elements[i].canColideWith(elements[j]) || (!elements[i].isActive() && !elements[j].isActive())){
+					continue;
+				}
+				simulator.testPair(elements[i], elements[j]);
+			}
+		}
+	}
+	
+	/**
+	 * Atualiza os intervalos com as posições atuais dos elementos, acrescenta os novos no fim da lista,
+	 * remove os que não foram encontrados e reordena a lista.
+	 */
+	private void update(List<GameElement> sceneElements){
+		PhysicElement element = null;
+		int index = 0, updated = 0;
+		
+		frame++;
+		//A lista da cena está ordenada pelo Y de forma decrescente, então é percorrida de trás para frente
+		//para que os intervalos sejam visitados na ordem em que estão guardados
+		for(int i = sceneElements.size() - 1; i >= 0; i--){
+			element = (PhysicElement)sceneElements.get(i);
+			if(element.isDeleted() || !element.isColidable()){
+				continue;
+			}
+			
+			//Um elemento novo, ou cuja posição guardada é de outra fase ampla, é acrescentado no fim da lista
+			index = element.getBroadPhaseProxy();
+			if(index < 0 || index >= size || elements[index] != element){
+				ensureCapacity(size + 1);
+				index = size++;
+				elements[index] = element;
+				element.setBroadPhaseProxy(index);
+			}
+			
+			updated++;
+			proxyFrame[index] = frame;
+			minX[index] = element.getPosition().getX() - element.getRadio();
+			minY[index] = element.getPosition().getY() - element.getRadio();
+			maxX[index] = element.getPosition().getX() + element.getRadio();
+			maxY[index] = element.getPosition().getY() + element.getRadio();
+		}
+		
+		if(updated < size){
+			removeOldProxies();
+		}
+		sortByMinY();
+	}
+	
+	/**
+	 * Remove os intervalos de elementos que não foram encontrados na última simulação, 
+	 * liberando as referências para não impedir a coleta de elementos removidos da cena.
+	 */
+	private void removeOldProxies(){
+		int kept = 0;
+		for(int i = 0; i < size; i++){
+			if(proxyFrame[i] == frame){
+				if(kept != i){
+					elements[kept] = elements[i];
+					minX[kept] = minX[i];
+					minY[kept] = minY[i];
+					maxX[kept] = maxX[i];
+					maxY[kept] = maxY[i];
+					elements[kept].setBroadPhaseProxy(kept);
+				}
+				kept++;
+			}else if(elements[i].getBroadPhaseProxy() == i){
+				elements[i].setBroadPhaseProxy(-1);
+			}
+		}
+		Arrays.fill(elements, kept, size, null);
+		size = kept;
+	}
+	
+	/**
+	 * Ordena os intervalos pelo menor Y e pelo código dos elementos por inserção, que é linear para a lista
+	 * quase ordenada da simulação anterior.
+	 */
+	private void sortByMinY(){
+		PhysicElement element = null;
+		double elementMinX, elementMinY, elementMaxX, elementMaxY;
+		int j = 0;
+		for(int i = 1; i < size; i++){
+			element = elements[i];
+			elementMinX = minX[i];
+			elementMinY = minY[i];
+			elementMaxX = maxX[i];
+			elementMaxY = maxY[i];
+			
+			j = i - 1;
+			while(j >= 0 && (minY[j] > elementMinY || (minY[j] == elementMinY && elements[j].getCode() > element.getCode()))){
+				elements[j + 1] = elements[j];
+				minX[j + 1] = minX[j];
+				minY[j + 1] = minY[j];
+				maxX[j + 1] = maxX[j];
+				maxY[j + 1] = maxY[j];
+				elements[j + 1].setBroadPhaseProxy(j + 1);
+				j--;
+			}
+			if(j == i - 1){
+				continue;
+			}
+			
+			elements[j + 1] = element;
+			element.setBroadPhaseProxy(j + 1);
+			minX[j + 1] = elementMinX;
+			minY[j + 1] = elementMinY;
+			maxX[j + 1] = elementMaxX;
+			maxY[j + 1] = elementMaxY;
+		}
+	}
+	
+	/**
+	 * Garante a capacidade dos vetores de intervalos, mantendo os intervalos da simulação anterior.
+	 */
+	private void ensureCapacity(int capacity){
+		if(elements.length < capacity){
+			int length = Math.max(capacity, elements.length*2);
+			elements = Arrays.copyOf(elements, length);
+			minX = Arrays.copyOf(minX, length);
+			minY = Arrays.copyOf(minY, length);
+			maxX = Arrays.copyOf(maxX, length);
+			maxY = Arrays.copyOf(maxY, length);
+			proxyFrame = Arrays.copyOf(proxyFrame, length);
+		}
+	}
+}
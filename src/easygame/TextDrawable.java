@@ -159,7 +159,7 @@ public class TextDrawable extends GameElement implements DrawableElement, Toucha
 	 * Seta a rotação do texto em graus celcios.
 	 */
 	public void setRotationInDegree(double rotation) {
-		this.setRotationInRadians(Math.toRadians(rotation));
+		this.setRotationInRadians(GameMath.toRadians(rotation));
 	}
 	
 	/**
@@ -0,0 +1,253 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+package easygame;
+
+/**
+ * Camada de colisão em grade para cenários feitos de blocos. Cada célula guarda um valor, zero para vazia e
+ * qualquer outro para sólida, e os corpos são testados apenas contra as células que a sua caixa sobrepõe,
+ * substituindo os muitos elementos estáticos que formariam o mesmo cenário.
+ * @author Willians Magalhães Primo
+ */
+public class TileLayer {
+	//Células alteradas, guardadas em anel pelo número da alteração para que o simulador acorde os elementos
+	//em repouso sobre elas. A coluna -1 indica uma alteração de toda a camada. O tamanho do anel é uma potência de dois
+	public static final int CHANGES = 256;
+	private int[] changes = new int[CHANGES*2];
+	
+	private short[] tiles = new short[0];
+	private int columns = 0,
+				rows = 0,
+				colisionCategory = 1,
+				modifications = 0;
+	private double tileSize = 32.0f,
+				   originX = 0.0f,
+				   originY = 0.0f,
+				   elasticity = 0.0f,
+				   friction = 0.0f;
+	
+	//Construtores
+	public TileLayer(int columns, int rows, double tileSize){
+		this.columns = columns;
+		this.rows = rows;
+		this.tileSize = tileSize;
+		this.tiles = new short[columns*rows];
+	}
+	
+	public TileLayer(int columns, int rows, double tileSize, short[] tiles){
+		this(columns, rows, tileSize);
+		System.arraycopy(tiles, 0, this.tiles, 0, Math.min(tiles.length, this.tiles.length));
+	}
+	
+	/**
+	 * Retorna o valor de uma célula, ou zero fora da grade.
+	 */
+	public short getTile(int column, int row){
+		if(column < 0 || row < 0 || column >= columns || row >= rows){
+			return 0;
+		}
+		return tiles[row*columns + column];
+	}
+	
+	/**
+	 * Seta o valor de uma célula, zero para vazia e qualquer outro para sólida.
+	 */
+	public void setTile(int column, int row, short tile){
+		if(column < 0 || row < 0 || column >= columns || row >= rows || tiles[row*columns + column] == tile){
+			return;
+		}
+		tiles[row*columns + column] = tile;
+		changed(column, row);
+	}
+	
+	/**
+	 * Retorna se a célula é sólida. Células fora da grade são vazias.
+	 */
+	public boolean isSolid(int column, int row){
+		return getTile(column, row) != 0;
+	}
+	
+	/**
+	 * Retorna se o ponto está em uma célula sólida.
+	 */
+	public boolean isSolidAt(double x, double y){
+		return isSolid(getColumn(x), getRow(y));
+	}
+	
+	/**
+	 * Retorna a coluna que contém a coordenada x.
+	 */
+	public int getColumn(double x){
+		return (int)Math.floor((x - originX)/tileSize);
+	}
+	
+	/**
+	 * Retorna a linha que contém a coordenada y.
+	 */
+	public int getRow(double y){
+		return (int)Math.floor((y - originY)/tileSize);
+	}
+	
+	/**
+	 * Retorna a coordenada x da borda esquerda de uma coluna.
+	 */
+	public double getColumnX(int column){
+		return originX + column*tileSize;
+	}
+	
+	/**
+	 * Retorna a coordenada y da borda superior de uma linha.
+	 */
+	public double getRowY(int row){
+		return originY + row*tileSize;
+	}
+	
+	/**
+	 * Retorna o contador de alterações nas células, usado para saber quando dados derivados da camada estão desatualizados.
+	 */
+	public int getModifications(){
+		return modifications;
+	}
+	
+	/**
+	 * Retorna o vetor das células, linha por linha. Alterações diretas devem ser seguidas de invalidate().
+	 */
+	public short[] getTiles(){
+		return tiles;
+	}
+	
+	/**
+	 * Registra uma alteração feita diretamente no vetor das células.
+	 */
+	public void invalidate(){
+		changed(-1, -1);
+	}
+	
+	/**
+	 * Retorna a coluna de uma alteração, ou -1 caso toda a camada tenha sido alterada. 
+	 * Apenas as últimas CHANGES alterações são guardadas.
+	 */
+	public int getChangedColumn(int modification){
+		return changes[(modification & (CHANGES - 1))*2];
+	}
+	
+	/**
+	 * Retorna a linha de uma alteração, ou -1 caso toda a camada tenha sido alterada.
+	 */
+	public int getChangedRow(int modification){
+		return changes[(modification & (CHANGES - 1))*2 + 1];
+	}
+	
+	/**
+	 * Registra a alteração de uma célula, ou de toda a camada com a coluna -1.
+	 */
+	private void changed(int column, int row){
+		changes[(modifications & (CHANGES - 1))*2] = column;
+		changes[(modifications & (CHANGES - 1))*2 + 1] = row;
+		modifications++;
+	}
+	
+	/**
+	 * Retorna o número de colunas.
+	 */
+	public int getColumns(){
+		return columns;
+	}
+	
+	/**
+	 * Retorna o número de linhas.
+	 */
+	public int getRows(){
+		return rows;
+	}
+	
+	/**
+	 * Retorna o tamanho de cada célula.
+	 */
+	public double getTileSize(){
+		return tileSize;
+	}
+	
+	/**
+	 * Retorna a coordenada x do canto superior esquerdo da grade.
+	 */
+	public double getOriginX(){
+		return originX;
+	}
+	
+	/**
+	 * Retorna a coordenada y do canto superior esquerdo da grade.
+	 */
+	public double getOriginY(){
+		return originY;
+	}
+	
+	/**
+	 * Seta o canto superior esquerdo da grade.
+	 */
+	public void setOrigin(double originX, double originY){
+		this.originX = originX;
+		this.originY = originY;
+		changed(-1, -1);
+	}
+	
+	/**
+	 * Retorna a categoria de colisão da camada, comparada com a máscara de cada elemento.
+	 */
+	public int getColisionCategory(){
+		return colisionCategory;
+	}
+	
+	/**
+	 * Seta a categoria de colisão da camada. Apenas os elementos com a categoria na máscara colidem com a camada.
+	 */
+	public void setColisionCategory(int colisionCategory){
+		this.colisionCategory = colisionCategory;
+	}
+	
+	/**
+	 * Retorna a elasticidade das células, somada à do elemento como na colisão entre elementos.
+	 */
+	public double getElasticity(){
+		return elasticity;
+	}
+	
+	/**
+	 * Seta a elasticidade das células.
+	 */
+	public void setElasticity(double elasticity){
+		this.elasticity = elasticity;
+	}
+	
+	/**
+	 * Retorna o atrito das células, somado ao do elemento como na colisão entre elementos.
+	 */
+	public double getFriction(){
+		return friction;
+	}
+	
+	/**
+	 * Seta o atrito das células.
+	 */
+	public void setFriction(double friction){
+		this.friction = friction;
+	}
+}
@@ -59,17 +59,17 @@ public class Vector2D {
 	public double angle(){
 		double angle = 0.0f;
 		if(x == 0 && y > 0){
-			angle =  Math.toRadians(90);
+			angle =  GameMath.toRadians(90);
 		}else if(x == 0 && y < 0){
-			angle =  Math.toRadians(270);
+			angle =  GameMath.toRadians(270);
 		}else{
-			angle =  Math.atan(Math.abs(y/x));
+			angle =  GameMath.atan(Math.abs(y/x));
 			if(x < 0 && y >= 0){
-				angle = Math.toRadians(180) - angle;
+				angle = GameMath.toRadians(180) - angle;
 			}else if(x < 0 && y < 0){
-				angle = Math.toRadians(180) + angle;
+				angle = GameMath.toRadians(180) + angle;
 			}else if(x > 0 && y < 0){
-				angle = Math.toRadians(360) - angle;
+				angle = GameMath.toRadians(360) - angle;
 			}
 		}
 		return angle;
@@ -81,8 +81,18 @@ public class Vector2D {
 	public void rotate(double angle){
 		double oldX = x;
 		double oldY = y;
-		this.x = oldX*Math.cos(angle) - oldY*Math.sin(angle);
-		this.y = oldX*Math.sin(angle) + oldY*Math.cos(angle);
+		this.x = oldX*GameMath.cos(angle) - oldY*GameMath.sin(angle);
+		this.y = oldX*GameMath.sin(angle) + oldY*GameMath.cos(angle);
+	}
+	
+	/**
+	 * Aplica um rotação no vetor a partir do cosseno e do seno do ângulo, já calculados.
+	 */
+	public void rotate(double cos, double sin){
+		double oldX = x;
+		double oldY = y;
+		this.x = oldX*cos - oldY*sin;
+		this.y = oldX*sin + oldY*cos;
 	}
 	
 	/**
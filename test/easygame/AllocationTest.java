@@ -0,0 +1,136 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Teste de alocação da simulação: os vetores internos do simulador, das fases amplas e da fila de eventos crescem
+ * até o tamanho necessário e depois são reaproveitados, então repetir simulações já executadas não deve alocar memória.
+ * Depois de um aquecimento, cada configuração simula um trecho, volta ao início dele com PhysicSimulator.restoreHistory
+ * e mede os bytes alocados pela thread do teste ao repetir o trecho, saindo com código diferente de zero caso algum
+ * seja maior que zero. A detecção paralela não é medida, pois as tarefas são executadas por outras threads.
+ * Depende de com.sun.management.ThreadMXBean, disponível na JVM do OpenJDK e da Oracle.
+ * Compilar com o android.jar no classpath, junto com os fontes de src:
+ * javac -cp android.jar -d out src/easygame/*.java test/easygame/*.java
+ * java -cp out:android.jar easygame.AllocationTest
+ * @author Willians Magalhães Primo
+ */
+public class AllocationTest {
+	private static final int WARM_UP = 300,
+							 STEPS = 200;
+	
+	private static com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+	private static int failures = 0;
+	
+	/**
+	 * Configuração do simulador a ser testada.
+	 */
+	private interface Configuration {
+		public void configure(PhysicSimulator simulator);
+	}
+	
+	public static void main(String[] args){
+		test("brute", new Configuration() {
+			@Override
+			public void configure(PhysicSimulator simulator) {}
+		});
+		test("hash", new Configuration() {
+			@Override
+			public void configure(PhysicSimulator simulator) {
+				simulator.setBroadPhase(new SpatialHashBroadPhase(64));
+			}
+		});
+		test("sap+events", new Configuration() {
+			@Override
+			public void configure(PhysicSimulator simulator) {
+				simulator.setBroadPhase(new SweepAndPruneBroadPhase());
+				simulator.setBufferedEvents(true);
+			}
+		});
+		test("tree", new Configuration() {
+			@Override
+			public void configure(PhysicSimulator simulator) {
+				simulator.setBroadPhase(new AABBTreeBroadPhase());
+			}
+		});
+		test("brute+static", new Configuration() {
+			@Override
+			public void configure(PhysicSimulator simulator) {
+				simulator.setStaticIndex(new StaticIndex());
+			}
+		});
+		test("sap+static+sleep", new Configuration() {
+			@Override
+			public void configure(PhysicSimulator simulator) {
+				simulator.setBroadPhase(new SweepAndPruneBroadPhase());
+				simulator.setStaticIndex(new StaticIndex());
+				simulator.setSleepEnabled(true);
+			}
+		});
+		test("sap+substeps", new Configuration() {
+			@Override
+			public void configure(PhysicSimulator simulator) {
+				simulator.setBroadPhase(new SweepAndPruneBroadPhase());
+				simulator.setMaximumSubsteps(4);
+			}
+		});
+		test("sap+solver", new Configuration() {
+			@Override
+			public void configure(PhysicSimulator simulator) {
+				simulator.setBroadPhase(new SweepAndPruneBroadPhase());
+				simulator.setImpulseSolver(new ImpulseSolver());
+			}
+		});
+		
+		System.out.println(failures == 0 ? "OK" : failures + " falhas");
+		System.exit(failures == 0 ? 0 : 1);
+	}
+	
+	/**
+	 * Aquece uma configuração, simula um trecho e mede os bytes alocados ao repetir o mesmo trecho.
+	 */
+	private static void test(String name, Configuration configuration){
+		TestScene scene = new TestScene(1, 600, 0);
+		PhysicSimulator simulator = scene.createSimulator();
+		configuration.configure(simulator);
+		scene.simulate(simulator, WARM_UP);
+		
+		PhysicHistory history = new PhysicHistory(1, 1024);
+		simulator.saveHistory(history);
+		scene.simulate(simulator, STEPS);
+		simulator.restoreHistory(history, 0);
+		
+		long thread = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(thread);
+		scene.simulate(simulator, STEPS);
+		long allocated = threads.getThreadAllocatedBytes(thread) - before;
+		
+		if(allocated == 0){
+			System.out.println(name + ": 0 bytes");
+		}else{
+			System.out.println(name + ": FALHOU " + allocated + " bytes");
+			failures++;
+		}
+	}
+}
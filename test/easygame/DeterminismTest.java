@@ -0,0 +1,147 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+/**
+ * Teste de determinismo da simulação: cada configuração do simulador é executada duas vezes sobre a mesma cena
+ * e o hash do estado depois de um número de simulações deve ser igual ao hash esperado da configuração, gravado
+ * no teste, de modo que uma diferença entre JVMs ou dispositivos também é detectada. Também verifica que,
+ * depois de voltar no tempo com PhysicSimulator.restoreHistory, a simulação repete exatamente o mesmo estado.
+ * Sai com código diferente de zero caso alguma configuração falhe. Uma mudança intencional no comportamento da
+ * simulação exige atualizar os hashes esperados.
+ * Compilar com o android.jar no classpath, junto com os fontes de src:
+ * javac -cp android.jar -d out src/easygame/*.java test/easygame/*.java
+ * java -cp out:android.jar easygame.DeterminismTest
+ * @author Willians Magalhães Primo
+ */
+public class DeterminismTest {
+	private static final int STEPS = 300;
+	
+	private static int failures = 0;
+	
+	/**
+	 * Configuração do simulador a ser testada.
+	 */
+	private interface Configuration {
+		public void configure(PhysicSimulator simulator);
+	}
+	
+	public static void main(String[] args){
+		GameMath.setMode(GameMath.Mode.DETERMINISTIC);
+		
+		test("brute", 0x587a4d00aa8d07f6L, new Configuration() {
+			@Override
+			public void configure(PhysicSimulator simulator) {}
+		});
+		test("hash", 0xb491c7832d4e6e57L, new Configuration() {
+			@Override
+			public void configure(PhysicSimulator simulator) {
+				simulator.setBroadPhase(new SpatialHashBroadPhase(64));
+			}
+		});
+		test("sap+static+events", 0xa420bb8e8105463cL, new Configuration() {
+			@Override
+			public void configure(PhysicSimulator simulator) {
+				simulator.setBroadPhase(new SweepAndPruneBroadPhase());
+				simulator.setBufferedEvents(true);
+				simulator.setStaticIndex(new StaticIndex());
+			}
+		});
+		test("tree+sleep", 0x69d03cd95bbace2cL, new Configuration() {
+			@Override
+			public void configure(PhysicSimulator simulator) {
+				simulator.setBroadPhase(new AABBTreeBroadPhase());
+				simulator.setSleepEnabled(true);
+			}
+		});
+		test("sap+parallel", 0x1e310db42dc15511L, new Configuration() {
+			@Override
+			public void configure(PhysicSimulator simulator) {
+				simulator.setBroadPhase(new SweepAndPruneBroadPhase());
+				simulator.setParallelism(4);
+			}
+		});
+		test("sap+substeps", 0xd6629c2a38ff20f5L, new Configuration() {
+			@Override
+			public void configure(PhysicSimulator simulator) {
+				simulator.setBroadPhase(new SweepAndPruneBroadPhase());
+				simulator.setMaximumSubsteps(4);
+			}
+		});
+		test("sap+solver", 0x610063a2291ccbd4L, new Configuration() {
+			@Override
+			public void configure(PhysicSimulator simulator) {
+				simulator.setBroadPhase(new SweepAndPruneBroadPhase());
+				simulator.setImpulseSolver(new ImpulseSolver());
+			}
+		});
+		
+		System.out.println(failures == 0 ? "OK" : failures + " falhas");
+		System.exit(failures == 0 ? 0 : 1);
+	}
+	
+	/**
+	 * Executa uma configuração duas vezes e depois volta no tempo, comparando os hashes do estado com o esperado.
+	 */
+	private static void test(String name, long golden, Configuration configuration){
+		check(name, golden, run(configuration));
+		check(name + " rerun", golden, run(configuration));
+		
+		TestScene scene = new TestScene(3, 200, 20);
+		PhysicSimulator simulator = scene.createSimulator();
+		configuration.configure(simulator);
+		PhysicHistory history = new PhysicHistory(4, 256);
+		scene.simulate(simulator, STEPS/2);
+		simulator.saveHistory(history);
+		scene.simulate(simulator, STEPS/2);
+		simulator.restoreHistory(history, 0);
+		scene.simulate(simulator, STEPS/2);
+		check(name + " rollback", golden, simulator.getStateHash());
+		simulator.setParallelism(1);
+	}
+	
+	/**
+	 * Retorna o hash do estado de uma cena nova depois das simulações.
+	 */
+	private static long run(Configuration configuration){
+		TestScene scene = new TestScene(3, 200, 20);
+		PhysicSimulator simulator = scene.createSimulator();
+		configuration.configure(simulator);
+		scene.simulate(simulator, STEPS);
+		long hash = simulator.getStateHash();
+		simulator.setParallelism(1);
+		return hash;
+	}
+	
+	/**
+	 * Compara dois hashes, informando a falha.
+	 */
+	private static void check(String name, long expected, long actual){
+		if(expected == actual){
+			System.out.println(name + ": " + Long.toHexString(actual));
+		}else{
+			System.out.println(name + ": FALHOU " + Long.toHexString(expected) + " != " + Long.toHexString(actual));
+			failures++;
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/*The MIT License (MIT)
+
+Copyright (c) 2015 Willians Magalhães Primo
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE. */
+
+package easygame;
+
+import java.util.Random;
+
+/**
+ * Cena usada pelos testes, com um chão, alguns blocos estáticos e corpos dinâmicos em posições aleatórias
+ * geradas a partir de uma semente, de modo que a mesma semente sempre gera a mesma cena.
+ * @author Willians Magalhães Primo
+ */
+class TestScene extends Scene {
+	//Construtores
+	public TestScene(long seed, int bodies, int blocks){
+		Random random = new Random(seed);
+		
+		PhysicElement floor = new PhysicElement();
+		floor.setSize(2000, 20);
+		floor.setPosition(1000, 1000);
+		floor.setStatic(true);
+		addElement(floor);
+		
+		for(int i = 0; i < blocks; i++){
+			PhysicElement block = new PhysicElement();
+			block.setSize(16, 16);
+			block.setPosition(100 + (i%100)*18, 300 + (i/100)*40);
+			block.setStatic(true);
+			addElement(block);
+		}
+		
+		for(int i = 0; i < bodies; i++){
+			PhysicElement body = new PhysicElement();
+			body.setShape(i%2 == 0 ? PhysicSimulator.Shape.ELIPSE : PhysicSimulator.Shape.RECTANGLE);
+			body.setSize(10 + random.nextInt(20), 10 + random.nextInt(20));
+			body.setPosition(random.nextDouble()*1800 + 100, random.nextDouble()*900);
+			body.setVelocity(random.nextDouble()*4 - 2, random.nextDouble()*4 - 2);
+			addElement(body);
+		}
+	}
+	
+	@Override
+	protected void onLoad() {}
+	
+	/**
+	 * Cria um simulador para a cena com a gravidade usada pelos testes.
+	 */
+	public PhysicSimulator createSimulator(){
+		PhysicSimulator simulator = new PhysicSimulator(this);
+		simulator.setGravity(0, 0.3f);
+		return simulator;
+	}
+	
+	/**
+	 * Executa um número de simulações, removendo os elementos deletados antes de cada uma como a cena faz.
+	 */
+	public void simulate(PhysicSimulator simulator, int steps){
+		for(int i = 0; i < steps; i++){
+			removeDeletedElements();
+			simulator.simulate();
+		}
+	}
+}